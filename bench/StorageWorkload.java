@@ -0,0 +1,131 @@
+import benchmark.TrainWorkload;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+
+/**
+ * The StorageWorkload class runs the benchmarked operations on a train of any storage created
+ * by TrainFactory. The manifest is printed by a TrainRenderer to a stream discarding everything,
+ * so the benchmark measures the train rather than the console.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class StorageWorkload implements TrainWorkload {
+    private static final int PRODUCTS = 20;
+    private static final long SEED = 42;
+
+    private final TrainRenderer renderer = new TrainRenderer(new PrintStream(OutputStream.nullOutputStream()));
+    private Train train;
+    private int position, product;
+
+    /**
+     * Constructor creates a workload with no train.
+     */
+    public StorageWorkload() {
+
+    }
+
+    @Override
+    public void build(String storage, int cars, double dangerousShare, double emptyShare) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        train = TrainFactory.create(storage);
+
+        for(int i = 0; i < cars; i++)
+            train.insertAfterCursor(createCar(random, dangerousShare, emptyShare));
+
+        position = cars / 2;
+        if(cars > 0)
+            seek(position);
+    }
+
+    @Override
+    public void insertAfterCursor() {
+        train.insertAfterCursor(new TrainCar(30, 12.5));
+    }
+
+    @Override
+    public void removeCursor() {
+        try {
+            train.removeCursor();
+        } catch(EmptyListException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void cursorForward() {
+        try {
+            if(++position == train.size()) {
+                position = 0;
+                seek(position);
+            } else
+                train.cursorForward();
+        } catch(EmptyListException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void cursorBackward() {
+        try {
+            if(--position < 0) {
+                position = train.size() - 1;
+                seek(position);
+            } else
+                train.cursorBackward();
+        } catch(EmptyListException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Object findProduct() {
+        ProductSearchResult result = train.findProduct("product " + product);
+        product = (product + 1) % PRODUCTS;
+        return result;
+    }
+
+    @Override
+    public void removeDangerousCars() {
+        try {
+            train.removeDangerousCars();
+        } catch(EmptyListException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void printManifest() {
+        renderer.manifest(train);
+    }
+
+    @Override
+    public int size() {
+        return train.size();
+    }
+
+    /**
+     * Creates a car with a random load, or none.
+     */
+    private static TrainCar createCar(SplittableRandom random, double dangerousShare, double emptyShare) {
+        TrainCar car = new TrainCar(20 + random.nextInt(60), 10 + random.nextInt(15));
+        double draw = random.nextDouble();
+
+        if(draw >= emptyShare)
+            car.setProductLoad(new ProductLoad("product " + random.nextInt(PRODUCTS), random.nextInt(100),
+                    random.nextInt(100000) / 100.0, draw < emptyShare + dangerousShare));
+        return car;
+    }
+
+    /**
+     * Moves the cursor to a position.
+     */
+    private void seek(int position) {
+        try {
+            train.seek(position);
+        } catch(EmptyListException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
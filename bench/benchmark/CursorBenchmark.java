@@ -0,0 +1,55 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CursorBenchmark class measures the operations that leave the train unchanged: moving the
+ * cursor, searching for a product, and printing the manifest. The train is built once per trial.
+ *
+ * @author Zhen Wei Liao
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CursorBenchmark extends TrainState {
+
+    /**
+     * Builds the train.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        build();
+    }
+
+    @Benchmark
+    public void cursorForward() {
+        workload.cursorForward();
+    }
+
+    @Benchmark
+    public void cursorBackward() {
+        workload.cursorBackward();
+    }
+
+    @Benchmark
+    public Object findProduct() {
+        return workload.findProduct();
+    }
+
+    @Benchmark
+    public void printManifest() {
+        workload.printManifest();
+    }
+}
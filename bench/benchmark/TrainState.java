@@ -0,0 +1,36 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The TrainState class holds the train of a benchmark and the parameters it is built from:
+ * number of cars, shares of dangerous and empty cars, and storage. Every combination of the
+ * parameters is benchmarked unless some are picked with -p, for example -p storage=linked.
+ *
+ * @author Zhen Wei Liao
+ **/
+@State(Scope.Thread)
+public abstract class TrainState {
+    @Param({"10", "10000", "1000000"})
+    public int cars;
+
+    @Param({"0.1", "0.5"})
+    public double dangerousShare;
+
+    @Param({"0.0", "0.4"})
+    public double emptyShare;
+
+    @Param({"linked", "compact", "concurrent", "persistent"})
+    public String storage;
+
+    protected final TrainWorkload workload = TrainWorkload.create();
+
+    /**
+     * Builds a new train from the parameters.
+     */
+    protected void build() {
+        workload.build(storage, cars, dangerousShare, emptyShare);
+    }
+}
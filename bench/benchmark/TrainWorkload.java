@@ -0,0 +1,89 @@
+package benchmark;
+
+/**
+ * The TrainWorkload interface gives the benchmarks access to a train. The classes of the train
+ * live in the default package, which the benchmark package can't import, so the operations go
+ * through this interface, implemented by StorageWorkload in the default package and loaded by name.
+ *
+ * @author Zhen Wei Liao
+ **/
+public interface TrainWorkload {
+
+    /**
+     * Creates the workload implemented by the default package class StorageWorkload.
+     *
+     * @return
+     * 		A new workload with no train.
+     */
+    static TrainWorkload create() {
+        try {
+            return (TrainWorkload) Class.forName("StorageWorkload").getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("StorageWorkload is missing from the class path.", e);
+        }
+    }
+
+    /**
+     * Replaces the train with a new one. The cars are drawn from a fixed seed, so every build
+     * with the same arguments gives the same train. The cursor is left in the middle of the train.
+     *
+     * @param storage
+     * 		Storage of the train, as given to TrainFactory.create().
+     *
+     * @param cars
+     * 		Number of cars.
+     *
+     * @param dangerousShare
+     * 		Share of the cars carrying a dangerous load, from 0 to 1.
+     *
+     * @param emptyShare
+     * 		Share of the cars carrying no load, from 0 to 1 - dangerousShare.
+     */
+    void build(String storage, int cars, double dangerousShare, double emptyShare);
+
+    /**
+     * Inserts a car after the cursor.
+     */
+    void insertAfterCursor();
+
+    /**
+     * Removes the car at the cursor.
+     */
+    void removeCursor();
+
+    /**
+     * Moves the cursor forward, jumping back to the head from the tail.
+     */
+    void cursorForward();
+
+    /**
+     * Moves the cursor backward, jumping to the tail from the head.
+     */
+    void cursorBackward();
+
+    /**
+     * Searches for one of the products of the train, in turn.
+     *
+     * @return
+     * 		The result of the search, for the benchmark to consume.
+     */
+    Object findProduct();
+
+    /**
+     * Removes the dangerous cars.
+     */
+    void removeDangerousCars();
+
+    /**
+     * Prints the manifest.
+     */
+    void printManifest();
+
+    /**
+     * Returns the number of cars, so the benchmarks can check the state they left behind.
+     *
+     * @return
+     * 		Number of cars of the train.
+     */
+    int size();
+}
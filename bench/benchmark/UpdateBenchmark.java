@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The UpdateBenchmark class measures the operations that change the train. A new train is built
+ * before every iteration, so every iteration starts from the same train, and an iteration is a
+ * single batch of operations: BATCH inserts or removals, or a single removal of the dangerous cars.
+ * The scores are the times of whole batches.
+ *
+ * @author Zhen Wei Liao
+ **/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = UpdateBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = UpdateBenchmark.BATCH)
+@Fork(1)
+public class UpdateBenchmark {
+    static final int BATCH = 1000;
+
+    /**
+     * The Fresh class holds a train built from the parameters before every iteration.
+     */
+    @State(Scope.Thread)
+    public static class Fresh extends TrainState {
+
+        /**
+         * Builds the train.
+         */
+        @Setup(Level.Iteration)
+        public void setup() {
+            build();
+        }
+    }
+
+    /**
+     * The Padded class holds a train built from the parameters with BATCH more cars after the
+     * cursor, so that a batch of removals leaves the number of cars given by the parameters.
+     */
+    @State(Scope.Thread)
+    public static class Padded extends TrainState {
+
+        /**
+         * Builds the train and adds the cars removed by the batch.
+         */
+        @Setup(Level.Iteration)
+        public void setup() {
+            build();
+            for(int i = 0; i < BATCH; i++)
+                workload.insertAfterCursor();
+        }
+    }
+
+    @Benchmark
+    public void insertAfterCursor(Fresh state) {
+        state.workload.insertAfterCursor();
+    }
+
+    @Benchmark
+    public void removeCursor(Padded state) {
+        state.workload.removeCursor();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public int removeDangerousCars(Fresh state) {
+        state.workload.removeDangerousCars();
+        return state.workload.size();
+    }
+}
@@ -0,0 +1,480 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+/**
+ * The CarIndex class keeps the TrainCarNode objects of a train in an implicit treap, a randomly
+ * balanced binary tree ordered by car position, in which every entry counts the entries below it.
+ * It enables finding the node at a position, finding the position of a node, inserting, and
+ * removing in O(log n) expected time.
+ * <p>
+ * Every entry also keeps the total length, weight, value, and number of dangerous cars of the
+ * cars below it, so the totals of a run of cars split off the index are known at once, and the
+ * totals of any range of positions are summed in O(log n) expected time.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class CarIndex {
+    // indexes of the totals summed by totalBefore()
+    private static final int LENGTH = 0, WEIGHT = 1, VALUE = 2, DANGEROUS = 3;
+
+    private Entry root;
+    private final SplittableRandom random = new SplittableRandom();
+
+    // results of the last split, kept as fields to avoid allocating a pair per split
+    private Entry splitLeft, splitRight;
+
+    /**
+     * The Entry class represents the tree entry of a single TrainCarNode.
+     */
+    static class Entry {
+        private Entry left, right, parent;
+        private final TrainCarNode node;
+        private final int priority;
+        private int size = 1, dangerous;
+        private long length, weight, value;  // millimetres, kilograms, cents
+
+        /**
+         * Constructor creates an Entry for the given node.
+         * It counts the car of the node, which must not be null.
+         *
+         * @param node
+         * 		TrainCarNode represented by the entry.
+         *
+         * @param priority
+         * 		Random heap priority of the entry.
+         */
+        private Entry(TrainCarNode node, int priority) {
+            this.node = node;
+            this.priority = priority;
+            update(this);
+        }
+    }
+
+    /**
+     * Constructor creates an empty CarIndex object.
+     */
+    public CarIndex() {
+
+    }
+
+    /**
+     * Returns the number of nodes in the index.
+     *
+     * @return
+     * 		Number of nodes in the index.
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the total length of the cars in the index.
+     *
+     * @return
+     * 		Total length in millimetres.
+     */
+    public long totalLength() {
+        return (root == null) ? 0 : root.length;
+    }
+
+    /**
+     * Returns the total weight of the cars in the index, product loads included.
+     *
+     * @return
+     * 		Total weight in kilograms.
+     */
+    public long totalWeight() {
+        return (root == null) ? 0 : root.weight;
+    }
+
+    /**
+     * Returns the total value of the product loads in the index.
+     *
+     * @return
+     * 		Total value in cents.
+     */
+    public long totalValue() {
+        return (root == null) ? 0 : root.value;
+    }
+
+    /**
+     * Returns the number of cars in the index carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars.
+     */
+    public int dangerousCount() {
+        return (root == null) ? 0 : root.dangerous;
+    }
+
+    /**
+     * Returns the totals of the cars between two positions, in O(log n) expected time. The totals
+     * of the cars before each of the two positions are summed on the way down from the root, and
+     * the totals of the range are their difference.
+     *
+     * @param from
+     * 		Position of the first car counted.
+     *
+     * @param to
+     * 		Position after the last car counted.
+     *
+     * @return
+     * 		The totals of the cars from the first position to the one before the second.
+     */
+    public RangeTotal totalOf(int from, int to) {
+        long[] start = totalBefore(from), end = totalBefore(to);
+
+        return new RangeTotal(to - from,
+                FixedPoint.toDouble(end[LENGTH] - start[LENGTH], FixedPoint.MILLI),
+                FixedPoint.toDouble(end[WEIGHT] - start[WEIGHT], FixedPoint.MILLI),
+                FixedPoint.toDouble(end[VALUE] - start[VALUE], FixedPoint.CENTI),
+                (int) (end[DANGEROUS] - start[DANGEROUS]));
+    }
+
+    /**
+     * Counts again the car of a node whose length, weight or product load changed, in O(log n)
+     * expected time. Nodes not in the index are ignored.
+     *
+     * @param node
+     * 		The TrainCarNode whose car changed.
+     */
+    public void refresh(TrainCarNode node) {
+        for(Entry entry = node.getIndexEntry(); entry != null; entry = entry.parent)
+            update(entry);
+    }
+
+    /**
+     * Removes every node from the index.
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Inserts a node so that it ends up at the given position.
+     *
+     * @param position
+     * 		Position of the node once inserted, from 0 to size().
+     *
+     * @param node
+     * 		The TrainCarNode being inserted.
+     */
+    public void insertAt(int position, TrainCarNode node) {
+        Entry entry = new Entry(node, random.nextInt());
+        node.setIndexEntry(entry);
+
+        split(root, position);
+        Entry left = splitLeft, right = splitRight;
+        root = merge(merge(left, entry), right);
+        root.parent = null;
+    }
+
+    /**
+     * Appends a chain of nodes after the last node of the index, in O(n) time. The nodes of the
+     * chain are built into a treap in a single pass, keeping on a stack the entries of its right
+     * spine, which is then merged with the index.
+     *
+     * @param first
+     * 		First node of the chain, followed by the other nodes through getNext() until null.
+     */
+    public void appendAll(TrainCarNode first) {
+        Deque<Entry> spine = new ArrayDeque<>();
+
+        for(TrainCarNode node = first; node != null; node = node.getNext()) {
+            Entry entry = new Entry(node, random.nextInt());
+            node.setIndexEntry(entry);
+
+            // entries popped off the spine have all their descendants, so their size is final
+            Entry last = null;
+            while(!spine.isEmpty() && spine.peek().priority < entry.priority) {
+                last = spine.pop();
+                update(last);
+            }
+
+            entry.left = last;
+            if(last != null)
+                last.parent = entry;
+            if(!spine.isEmpty()) {
+                spine.peek().right = entry;
+                entry.parent = spine.peek();
+            }
+            spine.push(entry);
+        }
+
+        Entry chain = null;
+        while(!spine.isEmpty()) {
+            chain = spine.pop();
+            update(chain);
+        }
+
+        root = merge(root, chain);
+        if(root != null)
+            root.parent = null;
+    }
+
+    /**
+     * Removes the nodes between two positions and returns them in a new index, in O(log n)
+     * expected time. The nodes keep their entries, so they are not indexed again.
+     *
+     * @param from
+     * 		Position of the first node removed.
+     *
+     * @param to
+     * 		Position after the last node removed.
+     *
+     * @return
+     * 		A new CarIndex holding the removed nodes, in the same order.
+     */
+    public CarIndex removeRange(int from, int to) {
+        split(root, from);
+        Entry left = splitLeft;
+        split(splitRight, to - from);
+        Entry range = splitLeft, right = splitRight;
+
+        root = setRoot(merge(left, right));
+
+        CarIndex removed = new CarIndex();
+        removed.root = setRoot(range);
+        return removed;
+    }
+
+    /**
+     * Moves every node of another index into this one, the first of them ending up at the given
+     * position, in O(log n) expected time. The other index is left empty.
+     *
+     * @param position
+     * 		Position of the first moved node, from 0 to size().
+     *
+     * @param other
+     * 		The CarIndex whose nodes are moved.
+     */
+    public void insertAll(int position, CarIndex other) {
+        split(root, position);
+        Entry left = splitLeft, right = splitRight;
+
+        root = setRoot(merge(merge(left, other.root), right));
+        other.root = null;
+    }
+
+    /**
+     * Removes a node from the index.
+     *
+     * @param node
+     * 		The TrainCarNode being removed.
+     */
+    public void remove(TrainCarNode node) {
+        Entry entry = node.getIndexEntry();
+        Entry parent = entry.parent;
+        Entry merged = merge(entry.left, entry.right);
+
+        if(merged != null)
+            merged.parent = parent;
+
+        if(parent == null)
+            root = merged;
+        else if(parent.left == entry)
+            parent.left = merged;
+        else
+            parent.right = merged;
+
+        for(Entry e = parent; e != null; e = e.parent)
+            update(e);
+
+        node.setIndexEntry(null);
+    }
+
+    /**
+     * Returns the position of a node in the train.
+     *
+     * @param node
+     * 		The TrainCarNode being looked up.
+     *
+     * @return
+     * 		Position of the node, starting from 0 at the head.
+     */
+    public int positionOf(TrainCarNode node) {
+        Entry entry = node.getIndexEntry();
+        int position = size(entry.left);
+
+        for(; entry.parent != null; entry = entry.parent) {
+            if(entry.parent.right == entry)
+                position += size(entry.parent.left) + 1;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the node at a position in the train.
+     *
+     * @param position
+     * 		Position of the node, from 0 to size() - 1.
+     *
+     * @return
+     * 		TrainCarNode at the position.
+     */
+    public TrainCarNode nodeAt(int position) {
+        Entry entry = root;
+
+        while(true) {
+            int leftSize = size(entry.left);
+
+            if(position < leftSize)
+                entry = entry.left;
+            else if(position == leftSize)
+                return entry.node;
+            else {
+                position -= leftSize + 1;
+                entry = entry.right;
+            }
+        }
+    }
+
+    /**
+     * Sums the totals of the cars before a position. Going right from an entry counts the entry
+     * and its left subtree, which are the entry's totals minus those of its right subtree.
+     */
+    private long[] totalBefore(int position) {
+        long[] total = new long[4];
+        Entry entry = root;
+
+        while(entry != null && position > 0) {
+            int leftSize = size(entry.left);
+
+            if(position <= leftSize)
+                entry = entry.left;
+            else {
+                Entry right = entry.right;
+
+                total[LENGTH] += entry.length - ((right == null) ? 0 : right.length);
+                total[WEIGHT] += entry.weight - ((right == null) ? 0 : right.weight);
+                total[VALUE] += entry.value - ((right == null) ? 0 : right.value);
+                total[DANGEROUS] += entry.dangerous - ((right == null) ? 0 : right.dangerous);
+                position -= leftSize + 1;
+                entry = right;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Splits a subtree into the entries before the given position (splitLeft) and the
+     * entries from that position on (splitRight).
+     *
+     * @param entry
+     *      Root of the subtree.
+     *
+     * @param position
+     *      Number of entries that go to the left part.
+     */
+    private void split(Entry entry, int position) {
+        if(entry == null) {
+            splitLeft = null;
+            splitRight = null;
+        } else if(size(entry.left) >= position) {
+            split(entry.left, position);
+            setLeft(entry, splitRight);
+            splitRight = entry;
+        } else {
+            split(entry.right, position - size(entry.left) - 1);
+            setRight(entry, splitLeft);
+            splitLeft = entry;
+        }
+    }
+
+    /**
+     * Merges two subtrees, all entries of the first one being before the entries of the second one.
+     *
+     * @param first
+     *      Root of the first subtree.
+     *
+     * @param second
+     *      Root of the second subtree.
+     *
+     * @return
+     *      Root of the merged subtree.
+     */
+    private Entry merge(Entry first, Entry second) {
+        if(first == null)
+            return second;
+        if(second == null)
+            return first;
+
+        if(first.priority > second.priority) {
+            setRight(first, merge(first.right, second));
+            return first;
+        }
+        setLeft(second, merge(first, second.left));
+        return second;
+    }
+
+    /**
+     * Detaches an entry from its former parent so that it can become the root of a tree.
+     */
+    private static Entry setRoot(Entry entry) {
+        if(entry != null)
+            entry.parent = null;
+        return entry;
+    }
+
+    /**
+     * Links a left child to an entry and recomputes the entry.
+     */
+    private void setLeft(Entry entry, Entry child) {
+        entry.left = child;
+        if(child != null)
+            child.parent = entry;
+        update(entry);
+    }
+
+    /**
+     * Links a right child to an entry and recomputes the entry.
+     */
+    private void setRight(Entry entry, Entry child) {
+        entry.right = child;
+        if(child != null)
+            child.parent = entry;
+        update(entry);
+    }
+
+    /**
+     * Recomputes the counts and totals kept on an entry from its children and its car.
+     */
+    private static void update(Entry entry) {
+        Entry left = entry.left, right = entry.right;
+        TrainCar car = entry.node.getCar();
+        ProductLoad load = car.getProductLoad();
+
+        entry.size = size(left) + size(right) + 1;
+        entry.length = car.getCarLengthMillimetres();
+        entry.weight = car.getCarWeightKilograms();
+        entry.value = 0;
+        entry.dangerous = 0;
+        if(load != null) {
+            entry.weight += load.getWeightKilograms();
+            entry.value = load.getValueCents();
+            if(load.isDangerous())
+                entry.dangerous = 1;
+        }
+
+        if(left != null) {
+            entry.length += left.length;
+            entry.weight += left.weight;
+            entry.value += left.value;
+            entry.dangerous += left.dangerous;
+        }
+        if(right != null) {
+            entry.length += right.length;
+            entry.weight += right.weight;
+            entry.value += right.value;
+            entry.dangerous += right.dangerous;
+        }
+    }
+
+    /**
+     * Returns the number of entries of a subtree.
+     */
+    private static int size(Entry entry) {
+        return (entry == null) ? 0 : entry.size;
+    }
+}
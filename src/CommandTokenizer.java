@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The CommandTokenizer class reads commands from an InputStream one line at a time and splits each
+ * line into whitespace separated tokens, or into fields separated by a given character, such as
+ * the comma of a CSV file. Lines are read into a reused byte buffer and tokens are
+ * only turned into Strings or numbers when asked for, so reading a large command file allocates
+ * little more than the product names.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class CommandTokenizer {
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final byte WORDS = 0;
+
+    private final InputStream in;
+    private final byte separator;
+    private final byte[] buffer = new byte[1 << 16];
+    private int bufferPosition, bufferLimit;
+
+    private byte[] line = new byte[256];
+    private int lineLength, lineNumber;
+    private int[] tokenStart = new int[8], tokenEnd = new int[8];
+    private int tokenCount;
+
+    /**
+     * Constructor creates a CommandTokenizer reading from an InputStream.
+     *
+     * @param in
+     * 		Stream of commands, one per line, encoded in UTF-8.
+     */
+    public CommandTokenizer(InputStream in) {
+        this.in = in;
+        this.separator = WORDS;
+    }
+
+    /**
+     * Constructor creates a CommandTokenizer splitting the lines of an InputStream into fields.
+     * Spaces around a field are trimmed, and a field may be enclosed in double quotes to hold the
+     * separator, a double quote being written twice inside it. Quoted fields can't span lines.
+     *
+     * @param in
+     * 		Stream of lines, encoded in UTF-8.
+     *
+     * @param separator
+     * 		The ASCII character separating the fields.
+     */
+    public CommandTokenizer(InputStream in, char separator) {
+        if(separator == WORDS || separator > 0x7F || separator == '"')
+            throw new IllegalArgumentException("Invalid separator.\n");
+
+        this.in = in;
+        this.separator = (byte) separator;
+    }
+
+    /**
+     * Reads the next line and splits it into tokens.
+     *
+     * @return
+     * 		True if a line was read, false at the end of the stream.
+     *
+     * @throws IOException
+     * 		when the stream can't be read.
+     */
+    public boolean nextLine() throws IOException {
+        lineLength = 0;
+        tokenCount = 0;
+
+        boolean read = false;
+        while(true) {
+            if(bufferPosition == bufferLimit) {
+                bufferLimit = in.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if(bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    break;
+                }
+            }
+            read = true;
+
+            byte b = buffer[bufferPosition++];
+            if(b == '\n')
+                break;
+            if(b == '\r')
+                continue;
+
+            if(lineLength == line.length)
+                line = Arrays.copyOf(line, lineLength * 2);
+            line[lineLength++] = b;
+        }
+
+        if(!read)
+            return false;
+
+        lineNumber++;
+        if(separator == WORDS)
+            split();
+        else
+            splitFields();
+        return true;
+    }
+
+    /**
+     * Returns the number of the last line read.
+     *
+     * @return
+     * 		Number of the line, starting from 1.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the number of tokens on the line.
+     *
+     * @return
+     * 		Number of tokens, 0 for a blank line.
+     */
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Returns a token of the line.
+     * <p>
+     * Tokens are the fields of the line when a separator is given; a field may be empty.
+     *
+     * @param index
+     * 		Index of the token, starting from 0.
+     *
+     * @return
+     * 		The token.
+     */
+    public String token(int index) {
+        return text(index, index + 1);
+    }
+
+    /**
+     * Returns several consecutive tokens of the line as they appear on it, spaces between them
+     * included, such as a product name made of several words. Fields are joined by their
+     * separators.
+     *
+     * @param from
+     * 		Index of the first token.
+     *
+     * @param to
+     * 		Index after the last token.
+     *
+     * @return
+     * 		The text of the tokens.
+     */
+    public String text(int from, int to) {
+        return new String(line, tokenStart[from], tokenEnd[to - 1] - tokenStart[from], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a token made of a single character, such as a command letter, in upper case.
+     *
+     * @param index
+     * 		Index of the token.
+     *
+     * @return
+     * 		The character in upper case, or '\0' if the token is longer than one character.
+     */
+    public char character(int index) {
+        if(tokenEnd[index] - tokenStart[index] != 1)
+            return '\0';
+
+        return Character.toUpperCase((char) (line[tokenStart[index]] & 0xFF));
+    }
+
+    /**
+     * Parses a token as a number. Plain decimal numbers are parsed straight from the line;
+     * other forms, such as exponents, are given to Double.parseDouble().
+     *
+     * @param index
+     * 		Index of the token.
+     *
+     * @return
+     * 		The number.
+     *
+     * @throws NumberFormatException
+     * 		when the token is not a number.
+     */
+    public double number(int index) throws NumberFormatException {
+        int position = tokenStart[index], end = tokenEnd[index];
+        boolean negative = false;
+
+        if(position < end && (line[position] == '-' || line[position] == '+'))
+            negative = line[position++] == '-';
+
+        long mantissa = 0;
+        int digits = 0, decimals = 0;
+        boolean point = false;
+
+        for(; position < end; position++) {
+            byte b = line[position];
+
+            if(b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if(point)
+                    decimals++;
+            } else if(b == '.' && !point)
+                point = true;
+            else
+                break;
+        }
+
+        // exact when the digits fit in a double and the power of ten is exact
+        if(position == end && digits > 0 && digits <= 15 && decimals < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[decimals];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(token(index));
+    }
+
+    /**
+     * Finds the tokens of the current line.
+     */
+    private void split() {
+        int position = 0;
+
+        while(true) {
+            while(position < lineLength && isSpace(line[position]))
+                position++;
+            if(position == lineLength)
+                return;
+
+            int start = position;
+            while(position < lineLength && !isSpace(line[position]))
+                position++;
+            addToken(start, position);
+        }
+    }
+
+    /**
+     * Finds the fields of the current line. Quoted fields are unescaped in place.
+     */
+    private void splitFields() {
+        int position = 0;
+
+        while(position < lineLength && isSpace(line[position]))
+            position++;
+        if(position == lineLength)
+            return;
+
+        while(true) {
+            while(position < lineLength && isSpace(line[position]))
+                position++;
+
+            int start = position, end;
+            if(position < lineLength && line[position] == '"') {
+                start = ++position;
+                end = start;
+                while(position < lineLength) {
+                    byte b = line[position++];
+
+                    if(b == '"') {
+                        if(position == lineLength || line[position] != '"')
+                            break;
+                        position++;
+                    }
+                    line[end++] = b;
+                }
+                while(position < lineLength && line[position] != separator)
+                    position++;
+            } else {
+                while(position < lineLength && line[position] != separator)
+                    position++;
+                end = position;
+                while(end > start && isSpace(line[end - 1]))
+                    end--;
+            }
+            addToken(start, end);
+
+            if(position == lineLength)
+                return;
+            position++;
+        }
+    }
+
+    /**
+     * Records the bounds of a token of the current line.
+     */
+    private void addToken(int start, int end) {
+        if(tokenCount == tokenStart.length) {
+            tokenStart = Arrays.copyOf(tokenStart, tokenCount * 2);
+            tokenEnd = Arrays.copyOf(tokenEnd, tokenCount * 2);
+        }
+        tokenStart[tokenCount] = start;
+        tokenEnd[tokenCount++] = end;
+    }
+
+    /**
+     * Tells if a byte is a space or a tab.
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
@@ -0,0 +1,679 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The CompactTrainList class is an alternative to the TrainLinkedList class with the same cursor
+ * operations. Instead of a TrainCarNode, a TrainCar, and a ProductLoad object per car, each car is a
+ * slot in parallel arrays of primitives holding the car length and weight, the load weight, value,
+ * and dangerousness, and an id of the product name. The order of the cars is kept by the prev and
+ * next arrays, which hold slot numbers (-1 for none), and the slots of removed cars are reused.
+ * <p>
+ * Since no TrainCar is kept on the train, getCursorData() and get() return a copy of the car, and
+ * changes to that copy are not reflected on the train. Use setCursorData() or setCursorLoad() instead.
+ * <p>
+ * The compact storage trades speed for memory: there is no position index, so seek(), get(),
+ * insertAt(), and getCursorPosition() walk the cars, in O(n) time, where TrainLinkedList takes
+ * O(log n). Moving the cursor, inserting after it, and removing it take constant time.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class CompactTrainList implements Train {
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // car and load given to the filter of removeIf(), filled again for every slot
+    private final TrainCar view = new TrainCar();
+    private final ProductLoad viewLoad = new ProductLoad();
+
+    // lengths in millimetres, weights in kilograms, values in cents (see FixedPoint)
+    private long[] carLength, carWeight, loadWeight, loadValue;
+    private boolean[] dangerous;
+    private int[] productId, prev, next;
+
+    private int head = NONE, tail = NONE, cursor = NONE;
+    private int freeSlot = NONE, usedSlots = 0;
+
+    private int numOfTrainCar = 0, numOfDangerousCar = 0;
+    private long totalLength = 0, totalValue = 0, totalWeight = 0;
+
+    private final Map<String, Integer> productIds = new HashMap<>();
+    private String[] productNames = new String[INITIAL_CAPACITY];
+    private int[] productCars = new int[INITIAL_CAPACITY], productDangerous = new int[INITIAL_CAPACITY];
+    private long[] productWeight = new long[INITIAL_CAPACITY], productValue = new long[INITIAL_CAPACITY];
+
+    /**
+     * Constructor creates an empty CompactTrainList object.
+     */
+    public CompactTrainList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor creates an empty CompactTrainList object with room for the given number of cars.
+     *
+     * @param capacity
+     * 		Number of cars the train can hold before its arrays are grown.
+     *
+     * @throws IllegalArgumentException
+     * 		when the capacity is negative.
+     */
+    public CompactTrainList(int capacity) throws IllegalArgumentException {
+        if(capacity < 0)
+            throw new IllegalArgumentException("Invalid. Capacity can't be negative.\n");
+
+        carLength = new long[capacity];
+        carWeight = new long[capacity];
+        loadWeight = new long[capacity];
+        loadValue = new long[capacity];
+        dangerous = new boolean[capacity];
+        productId = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+    }
+
+    /**
+     * Returns a copy of the TrainCar currently referenced by the cursor.
+     *
+     * @return
+     * 		Copy of the TrainCar currently referenced by the cursor, or null if the train is empty.
+     * */
+    public TrainCar getCursorData() {
+        if(cursor != NONE)
+            return carAt(cursor);
+
+        return null;
+    }
+
+    /**
+     * Replaces the car currently referenced by the cursor with the given car.
+     * <p>
+     * Post conditions:
+     * 		The car referenced by the cursor now holds the information of the given car,
+     * 		and the totals of the train have been updated.
+     *
+     * @param car
+     * 		TrainCar that will be referenced by the cursor.
+     * */
+    public void setCursorData(TrainCar car) {
+        if(cursor != NONE && car != null) {
+            subtractSlot(cursor);
+            writeSlot(cursor, car);
+            addSlot(cursor);
+        }
+    }
+
+    /**
+     * Replaces the product load of the car currently referenced by the cursor.
+     *
+     * @param load
+     * 		New product load of the car, or null to empty the car.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public void setCursorLoad(ProductLoad load) throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Please insert a train car first.\n");
+
+        subtractSlot(cursor);
+        writeLoad(cursor, load);
+        addSlot(cursor);
+    }
+
+    /**
+     * Moves the cursor to the next car.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the tail.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public boolean cursorForward() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+        else if(cursor == tail)
+            return false;
+
+        cursor = next[cursor];
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the previous car.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the head.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public boolean cursorBackward() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid. No train exist.\n");
+        else if(cursor == head)
+            return false;
+
+        cursor = prev[cursor];
+        return true;
+    }
+
+    /**
+     * Inserts a TrainCar into the train after the cursor position. The cursor now points to the
+     * inserted car.
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null.
+     * */
+    public void insertAfterCursor(TrainCar newCar) throws IllegalArgumentException {
+        if(newCar == null)
+            throw new IllegalArgumentException("The inserted train car can't be null.");
+
+        linkAfter(cursor, newCar);
+    }
+
+    /**
+     * Moves the cursor to the car at the given position. The cars are walked from the closest end
+     * of the train, in O(n) time.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public void seek(int position) throws EmptyListException, IllegalArgumentException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+
+        cursor = slotAt(position);
+    }
+
+    /**
+     * Returns a copy of the TrainCar at the given position without moving the cursor, walking from
+     * the closest end of the train, in O(n) time.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @return
+     * 		Copy of the TrainCar at the given position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainCar get(int position) throws IllegalArgumentException {
+        return carAt(slotAt(position));
+    }
+
+    /**
+     * Inserts a TrainCar into the train so that it ends up at the given position. The cursor now
+     * points to the inserted car. Finding the position walks from the closest end of the train,
+     * in O(n) time.
+     *
+     * @param position
+     * 		Position of the inserted car, from 0 (new head) to size() (new tail).
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null or the position is out of range.
+     * */
+    public void insertAt(int position, TrainCar newCar) throws IllegalArgumentException {
+        if(newCar == null)
+            throw new IllegalArgumentException("The inserted train car can't be null.");
+        if(position < 0 || position > numOfTrainCar)
+            throw new IllegalArgumentException("Invalid. Position must be between 0 and " + numOfTrainCar + ".\n");
+
+        linkAfter((position == 0) ? NONE : slotAt(position - 1), newCar);
+    }
+
+    /**
+     * Returns the position of the car currently referenced by the cursor, counting the cars before
+     * it, in O(n) time.
+     *
+     * @return
+     * 		Position of the cursor starting from 0 at the head, or -1 if the train is empty.
+     * */
+    public int getCursorPosition() {
+        int position = -1;
+
+        for(int slot = cursor; slot != NONE; slot = prev[slot])
+            position++;
+
+        return position;
+    }
+
+    /**
+     * Returns a copy of the car currently referenced by the cursor and then removes it from the
+     * train. The cursor now references the next car, or the previous car if the next one does
+     * not exist.
+     *
+     * @return
+     * 		Copy of the removed TrainCar.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public TrainCar removeCursor() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+
+        int removed = cursor;
+        TrainCar removedCar = carAt(removed);
+
+        cursor = (next[removed] != NONE) ? next[removed] : prev[removed];
+        unlink(removed);
+        return removedCar;
+    }
+
+    /**
+     * Searches the running totals of the product that has the same name as the desired name.
+     *
+     * @param name
+     * 		Name of the ProductLoad to find on the train.
+     *
+     * @return
+     * 		The number of cars carrying the product and the sums of their weights and values.
+     * */
+    public ProductSearchResult findProduct(String name) {
+        Integer id = productIds.get(name);
+
+        if(id == null || productCars[id] == 0)
+            return new ProductSearchResult(name, 0, 0, 0, false);
+
+        return new ProductSearchResult(name, productCars[id], FixedPoint.toDouble(productWeight[id], FixedPoint.MILLI),
+                FixedPoint.toDouble(productValue[id], FixedPoint.CENTI), productDangerous[id] > 0);
+    }
+
+    /**
+     * Removes all the dangerous car from the train, while maintaining the order of the cars.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public void removeDangerousCars() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid. No train exist.\n");
+
+        int slot = head;
+        while(slot != NONE) {
+            int following = next[slot];
+
+            if(dangerous[slot])
+                removeSlot(slot);
+            slot = following;
+        }
+    }
+
+    /**
+     * Removes every car matching the filter from the train, while maintaining the order of the
+     * remaining cars. The filter is given a view of each car, which is filled again for the next
+     * car, so the filter must not keep it or change it.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to remove.
+     *
+     * @return
+     * 		Number of cars removed from the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter is null.
+     * */
+    public int removeIf(Predicate<TrainCar> filter) throws IllegalArgumentException {
+        if(filter == null)
+            throw new IllegalArgumentException("The filter can't be null.");
+
+        int removedCars = 0, slot = head;
+        while(slot != NONE) {
+            int following = next[slot];
+
+            if(filter.test(viewOf(slot))) {
+                removeSlot(slot);
+                removedCars++;
+            }
+            slot = following;
+        }
+        return removedCars;
+    }
+
+    /**
+     * Returns the number of cars.
+     *
+     * @return
+     * 		Number of cars on the train.
+     * */
+    public int size() {
+        return numOfTrainCar;
+    }
+
+    /**
+     * Accessor. Returns the total length of the train in meters.
+     *
+     * @return
+     * 		Total length of the train.
+     * */
+    public double getLength() {
+        return FixedPoint.toDouble(totalLength, FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the total value of products carried by the train.
+     *
+     * @return
+     * 		Sum of each car values.
+     * */
+    public double getValue() {
+        return FixedPoint.toDouble(totalValue, FixedPoint.CENTI);
+    }
+
+    /**
+     * Accessor. Returns the total weight of the train in ton.
+     *
+     * @return
+     * 		Sum each car weights plus the sum of the product loads carried by that car.
+     * */
+    public double getWeight() {
+        return FixedPoint.toDouble(totalWeight, FixedPoint.MILLI);
+    }
+
+    /**
+     * Tells whether there's a dangerous product on the train.
+     *
+     * @return
+     * 		True if at least one car is carrying a dangerous product, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return numOfDangerousCar > 0;
+    }
+
+    /**
+     * Accessor. Returns the number of cars carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars on the train.
+     * */
+    public int getNumOfDangerousCar() {
+        return numOfDangerousCar;
+    }
+
+    /**
+     * Checks if the train is empty.
+     *
+     * @return
+     *      True if the train is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return head == NONE;
+    }
+
+    /**
+     * Writes a neatly formatted table of all the cars on the train, in the same layout as
+     * TrainLinkedList.writeManifest(). The rows are read straight from the columns.
+     *
+     * @param out
+     *      Writer receiving the table.
+     *
+     * @throws IOException
+     *      when the table can't be written.
+     * */
+    public void writeManifest(Writer out) throws IOException {
+        ManifestWriter manifest = new ManifestWriter(out);
+        manifest.writeHeader();
+
+        int carNum = 1;
+        for(int slot = head; slot != NONE; slot = next[slot]) {
+            int id = productId[slot];
+
+            manifest.writeRow(slot == cursor, carNum++, FixedPoint.toDouble(carLength[slot], FixedPoint.MILLI),
+                    FixedPoint.toDouble(carWeight[slot], FixedPoint.MILLI), (id == NONE) ? "Empty" : productNames[id],
+                    FixedPoint.toDouble(loadWeight[slot], FixedPoint.MILLI),
+                    FixedPoint.toDouble(loadValue[slot], FixedPoint.CENTI), dangerous[slot]);
+        }
+        manifest.finish();
+    }
+
+    /**
+     * Returns a neatly formatted String representation of the train, in the same layout as
+     * TrainLinkedList.toString().
+     *
+     * @return
+     * 		String representation of the train.
+     * */
+    @Override
+    public String toString() {
+        return TrainLinkedList.summary(size(), getLength(), getWeight(), getValue(), isDangerous());
+    }
+
+    /**
+     * Returns the slot of the car at the given position, walking from the closest end of the train.
+     */
+    private int slotAt(int position) throws IllegalArgumentException {
+        if(position < 0 || position >= numOfTrainCar)
+            throw new IllegalArgumentException("Invalid. Position must be between 0 and " + (numOfTrainCar - 1) + ".\n");
+
+        int slot;
+        if(position < numOfTrainCar / 2) {
+            slot = head;
+            for(int i = 0; i < position; i++)
+                slot = next[slot];
+        } else {
+            slot = tail;
+            for(int i = numOfTrainCar - 1; i > position; i--)
+                slot = prev[slot];
+        }
+        return slot;
+    }
+
+    /**
+     * Stores a car in a free slot linked after the given slot, or at the head of the train if the
+     * given slot is NONE, then moves the cursor to it.
+     */
+    private void linkAfter(int before, TrainCar newCar) {
+        int slot = allocateSlot();
+        int after = (before == NONE) ? head : next[before];
+
+        writeSlot(slot, newCar);
+        prev[slot] = before;
+        next[slot] = after;
+
+        if(before == NONE)
+            head = slot;
+        else
+            next[before] = slot;
+
+        if(after == NONE)
+            tail = slot;
+        else
+            prev[after] = slot;
+
+        cursor = slot;
+        numOfTrainCar++;
+        addSlot(slot);
+    }
+
+    /**
+     * Removes a car that is not referenced by the cursor, or moves the cursor away first.
+     */
+    private void removeSlot(int slot) {
+        if(slot == cursor)
+            cursor = (next[slot] != NONE) ? next[slot] : prev[slot];
+        unlink(slot);
+    }
+
+    /**
+     * Unlinks a slot from the train, subtracts it from the totals, and frees it for reuse.
+     */
+    private void unlink(int slot) {
+        if(prev[slot] == NONE)
+            head = next[slot];
+        else
+            next[prev[slot]] = next[slot];
+
+        if(next[slot] == NONE)
+            tail = prev[slot];
+        else
+            prev[next[slot]] = prev[slot];
+
+        subtractSlot(slot);
+        numOfTrainCar--;
+
+        next[slot] = freeSlot;
+        freeSlot = slot;
+    }
+
+    /**
+     * Returns a free slot, growing the arrays if every slot is used.
+     */
+    private int allocateSlot() {
+        if(freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+
+        if(usedSlots == carLength.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, usedSlots * 2);
+            carLength = Arrays.copyOf(carLength, capacity);
+            carWeight = Arrays.copyOf(carWeight, capacity);
+            loadWeight = Arrays.copyOf(loadWeight, capacity);
+            loadValue = Arrays.copyOf(loadValue, capacity);
+            dangerous = Arrays.copyOf(dangerous, capacity);
+            productId = Arrays.copyOf(productId, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return usedSlots++;
+    }
+
+    /**
+     * Copies the information of a car into a slot.
+     */
+    private void writeSlot(int slot, TrainCar car) {
+        carLength[slot] = car.getCarLengthMillimetres();
+        carWeight[slot] = car.getCarWeightKilograms();
+        writeLoad(slot, car.getProductLoad());
+    }
+
+    /**
+     * Copies the information of a product load into a slot.
+     */
+    private void writeLoad(int slot, ProductLoad load) {
+        if(load == null) {
+            productId[slot] = NONE;
+            loadWeight[slot] = 0;
+            loadValue[slot] = 0;
+            dangerous[slot] = false;
+        } else {
+            productId[slot] = productId(load.getName());
+            loadWeight[slot] = load.getWeightKilograms();
+            loadValue[slot] = load.getValueCents();
+            dangerous[slot] = load.isDangerous();
+        }
+    }
+
+    /**
+     * Creates a copy of the car held in a slot.
+     */
+    private TrainCar carAt(int slot) {
+        TrainCar car = new TrainCar(FixedPoint.toDouble(carWeight[slot], FixedPoint.MILLI),
+                FixedPoint.toDouble(carLength[slot], FixedPoint.MILLI));
+
+        if(productId[slot] != NONE)
+            car.setProductLoad(new ProductLoad(productNames[productId[slot]],
+                    FixedPoint.toDouble(loadWeight[slot], FixedPoint.MILLI),
+                    FixedPoint.toDouble(loadValue[slot], FixedPoint.CENTI), dangerous[slot]));
+        return car;
+    }
+
+    /**
+     * Fills the reused view with the car held in a slot, without allocating anything.
+     */
+    private TrainCar viewOf(int slot) {
+        view.setUnits(carLength[slot], carWeight[slot]);
+
+        if(productId[slot] == NONE)
+            view.setProductLoad(null);
+        else {
+            viewLoad.setUnits(ProductCatalog.get(productNames[productId[slot]], dangerous[slot]), loadWeight[slot],
+                    loadValue[slot]);
+            view.setProductLoad(viewLoad);
+        }
+        return view;
+    }
+
+    /**
+     * Returns the id of a product name, giving it a new id if it was never seen.
+     */
+    private int productId(String name) {
+        Integer id = productIds.get(name);
+        if(id != null)
+            return id;
+
+        int newId = productIds.size();
+        if(newId == productNames.length) {
+            int capacity = newId * 2;
+            productNames = Arrays.copyOf(productNames, capacity);
+            productCars = Arrays.copyOf(productCars, capacity);
+            productDangerous = Arrays.copyOf(productDangerous, capacity);
+            productWeight = Arrays.copyOf(productWeight, capacity);
+            productValue = Arrays.copyOf(productValue, capacity);
+        }
+        productNames[newId] = name;
+        productIds.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * Adds a slot to the totals of the train and of its product.
+     */
+    private void addSlot(int slot) {
+        totalLength += carLength[slot];
+        totalWeight += carWeight[slot] + loadWeight[slot];
+        totalValue += loadValue[slot];
+
+        if(dangerous[slot])
+            numOfDangerousCar++;
+
+        int id = productId[slot];
+        if(id != NONE) {
+            productCars[id]++;
+            productWeight[id] += loadWeight[slot];
+            productValue[id] += loadValue[slot];
+            if(dangerous[slot])
+                productDangerous[id]++;
+        }
+    }
+
+    /**
+     * Subtracts a slot from the totals of the train and of its product.
+     */
+    private void subtractSlot(int slot) {
+        totalLength -= carLength[slot];
+        totalWeight -= carWeight[slot] + loadWeight[slot];
+        totalValue -= loadValue[slot];
+
+        if(dangerous[slot])
+            numOfDangerousCar--;
+
+        int id = productId[slot];
+        if(id != NONE) {
+            productCars[id]--;
+            productWeight[id] -= loadWeight[slot];
+            productValue[id] -= loadValue[slot];
+            if(dangerous[slot])
+                productDangerous[id]--;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The ConcurrentTrain class makes any Train safe to share between threads, so that several workers
+ * can load the train while others read its totals.
+ * <p>
+ * Every operation that moves the cursor or changes the train takes the write lock of a StampedLock.
+ * Reading the totals (size, length, weight, value, dangerousness) and toString() never block:
+ * they read the fields optimistically and only retry under the read lock if a write happened in
+ * the meantime. Operations walking the cars, such as writeManifest(), take the read lock, so several
+ * of them can run at the same time. When the shared train is a TrainLinkedList, writeManifest()
+ * only holds the write lock to take a snapshot of it, and then writes the snapshot while the train
+ * keeps changing.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class ConcurrentTrain implements Train {
+    private final Train train;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructor creates a ConcurrentTrain sharing the given train.
+     *
+     * @param train
+     * 		The train being shared. It must not be used directly afterwards.
+     *
+     * @throws IllegalArgumentException
+     * 		when the train is null.
+     */
+    public ConcurrentTrain(Train train) throws IllegalArgumentException {
+        if(train == null)
+            throw new IllegalArgumentException("The shared train can't be null.");
+
+        this.train = train;
+    }
+
+    /**
+     * The TrainOperation interface is an operation on the shared train which may throw an
+     * EmptyListException.
+     */
+    private interface TrainOperation<T> {
+        T apply() throws EmptyListException;
+    }
+
+    /**
+     * Runs an operation under the write lock.
+     */
+    private <T> T write(TrainOperation<T> operation) throws EmptyListException {
+        long stamp = lock.writeLock();
+        try {
+            return operation.apply();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs an operation that can't throw an EmptyListException under the write lock.
+     */
+    private <T> T writeUnchecked(Supplier<T> operation) {
+        long stamp = lock.writeLock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs an operation under the read lock.
+     */
+    private <T> T read(Supplier<T> operation) {
+        long stamp = lock.readLock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs an operation reading only fields of the train without taking a lock, and runs it again
+     * under the read lock if a write happened at the same time.
+     */
+    private <T> T readOptimistic(Supplier<T> operation) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0) {
+            T result = operation.get();
+            if(lock.validate(stamp))
+                return result;
+        }
+        return read(operation);
+    }
+
+    @Override
+    public TrainCar getCursorData() {
+        return read(train::getCursorData);
+    }
+
+    @Override
+    public void setCursorData(TrainCar car) {
+        writeUnchecked(() -> {
+            train.setCursorData(car);
+            return null;
+        });
+    }
+
+    @Override
+    public void setCursorLoad(ProductLoad load) throws EmptyListException {
+        write(() -> {
+            train.setCursorLoad(load);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean cursorForward() throws EmptyListException {
+        return write(train::cursorForward);
+    }
+
+    @Override
+    public boolean cursorBackward() throws EmptyListException {
+        return write(train::cursorBackward);
+    }
+
+    @Override
+    public void insertAfterCursor(TrainCar newCar) throws IllegalArgumentException {
+        writeUnchecked(() -> {
+            train.insertAfterCursor(newCar);
+            return null;
+        });
+    }
+
+    @Override
+    public void seek(int position) throws EmptyListException, IllegalArgumentException {
+        write(() -> {
+            train.seek(position);
+            return null;
+        });
+    }
+
+    @Override
+    public TrainCar get(int position) throws IllegalArgumentException {
+        return read(() -> train.get(position));
+    }
+
+    @Override
+    public void insertAt(int position, TrainCar newCar) throws IllegalArgumentException {
+        writeUnchecked(() -> {
+            train.insertAt(position, newCar);
+            return null;
+        });
+    }
+
+    @Override
+    public int getCursorPosition() {
+        return read(train::getCursorPosition);
+    }
+
+    @Override
+    public TrainCar removeCursor() throws EmptyListException {
+        return write(train::removeCursor);
+    }
+
+    @Override
+    public ProductSearchResult findProduct(String name) {
+        return read(() -> train.findProduct(name));
+    }
+
+    @Override
+    public void removeDangerousCars() throws EmptyListException {
+        write(() -> {
+            train.removeDangerousCars();
+            return null;
+        });
+    }
+
+    @Override
+    public int removeIf(Predicate<TrainCar> filter) throws IllegalArgumentException {
+        return writeUnchecked(() -> train.removeIf(filter));
+    }
+
+    @Override
+    public int size() {
+        return readOptimistic(train::size);
+    }
+
+    @Override
+    public double getLength() {
+        return readOptimistic(train::getLength);
+    }
+
+    @Override
+    public double getValue() {
+        return readOptimistic(train::getValue);
+    }
+
+    @Override
+    public double getWeight() {
+        return readOptimistic(train::getWeight);
+    }
+
+    @Override
+    public boolean isDangerous() {
+        return readOptimistic(train::isDangerous);
+    }
+
+    @Override
+    public int getNumOfDangerousCar() {
+        return readOptimistic(train::getNumOfDangerousCar);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return readOptimistic(train::isEmpty);
+    }
+
+    /**
+     * Takes a point-in-time snapshot of the shared train, which can then be read without any lock
+     * while other threads keep changing the train. See TrainLinkedList.snapshot() for the cost.
+     *
+     * @return
+     * 		A snapshot of the train as it is now.
+     *
+     * @throws UnsupportedOperationException
+     * 		when the shared train is not a TrainLinkedList.
+     * */
+    public TrainSnapshot snapshot() throws UnsupportedOperationException {
+        if(!(train instanceof TrainLinkedList))
+            throw new UnsupportedOperationException("Only a linked train can be snapshot.\n");
+
+        return writeUnchecked(((TrainLinkedList) train)::snapshot);
+    }
+
+    @Override
+    public void writeManifest(Writer out) throws IOException {
+        if(train instanceof TrainLinkedList) {
+            snapshot().writeManifest(out);
+            return;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            train.writeManifest(out);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the String representation of the shared train. The totals are read together, so the
+     * line always describes a single state of the train.
+     *
+     * @return
+     * 		String representation of the train.
+     * */
+    @Override
+    public String toString() {
+        return readOptimistic(() -> TrainLinkedList.summary(train.size(), train.getLength(),
+                train.getWeight(), train.getValue(), train.isDangerous()));
+    }
+}
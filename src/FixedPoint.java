@@ -0,0 +1,90 @@
+/**
+ * The FixedPoint class converts quantities between the doubles of the user interface and the
+ * scaled long integers the train stores them as: lengths in millimetres, weights in kilograms,
+ * and values in cents. Adding and subtracting scaled longs is exact, so the totals of a train
+ * never drift, however many cars are inserted and removed.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class FixedPoint {
+    public static final long MILLI = 1000;  // millimetres per meter, kilograms per ton
+    public static final long CENTI = 100;   // cents per dollar
+
+    // largest number of units that converts back and forth to a double exactly (2^53)
+    private static final double MAX_UNITS = 9007199254740992.0;
+
+    /**
+     * Constructor is private since the class only has static methods.
+     */
+    private FixedPoint() {
+
+    }
+
+    /**
+     * Converts a quantity to a whole number of units, rounded to the nearest unit.
+     *
+     * @param amount
+     * 		The quantity, such as a length in meters.
+     *
+     * @param scale
+     * 		Number of units per whole, such as MILLI for millimetres.
+     *
+     * @return
+     * 		The quantity in units.
+     *
+     * @throws IllegalArgumentException
+     * 		when the amount is not a number or too large.
+     */
+    public static long toUnits(double amount, long scale) throws IllegalArgumentException {
+        double units = amount * scale;
+
+        if(Double.isNaN(units) || Math.abs(units) >= MAX_UNITS)
+            throw new IllegalArgumentException("Invalid. " + amount + " is out of range.\n");
+
+        return Math.round(units);
+    }
+
+    /**
+     * Converts a number of units back to a quantity.
+     *
+     * @param units
+     * 		The quantity in units.
+     *
+     * @param scale
+     * 		Number of units per whole, such as MILLI for millimetres.
+     *
+     * @return
+     * 		The quantity, such as a length in meters.
+     */
+    public static double toDouble(long units, long scale) {
+        return (double) units / scale;
+    }
+
+    /**
+     * Appends a number of units as a quantity with one decimal per zero of the scale, such as
+     * 12500 millimetres as "12.500". Every digit is taken from the long, so the text is exact and
+     * never in scientific notation, and parsing it gives back the same number of units.
+     *
+     * @param builder
+     * 		The builder receiving the quantity.
+     *
+     * @param units
+     * 		The quantity in units.
+     *
+     * @param scale
+     * 		Number of units per whole, a power of ten such as MILLI for millimetres.
+     */
+    public static void append(StringBuilder builder, long units, long scale) {
+        long whole = units / scale, fraction = Math.abs(units % scale);
+
+        if(units < 0 && whole == 0)
+            builder.append('-');
+        builder.append(whole);
+        if(scale > 1) {
+            builder.append('.');
+            for(long digit = scale / 10; digit > 1 && fraction < digit; digit /= 10)
+                builder.append('0');
+            builder.append(fraction);
+        }
+    }
+}
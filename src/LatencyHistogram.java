@@ -0,0 +1,173 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts the durations of an operation, in nanoseconds, so that their
+ * percentiles can be read at any time.
+ * <p>
+ * Like an HDR histogram, every power of two is split into 16 buckets of equal width, so a
+ * duration is known within 1/16 (6.25%) of its value, from a nanosecond to centuries, with 960
+ * counters. Recording a duration takes a few atomic additions and never allocates, and several
+ * threads may record at the same time. Percentiles are read without stopping the recording
+ * threads, so they may miss the durations being recorded meanwhile.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder(), total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos
+     * 		The duration in nanoseconds. Negative durations are recorded as 0.
+     */
+    public void record(long nanos) {
+        if(nanos < 0)
+            nanos = 0;
+
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        total.add(nanos);
+        if(nanos > max.get())
+            max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns the duration below which the given share of the recorded durations falls.
+     *
+     * @param percentile
+     * 		The share of the durations, from 0 to 100.
+     *
+     * @return
+     * 		The highest duration of the bucket holding the percentile, in nanoseconds, or 0 if no
+     * 		duration was recorded.
+     *
+     * @throws IllegalArgumentException
+     * 		when the percentile is not between 0 and 100.
+     */
+    public long getPercentile(double percentile) throws IllegalArgumentException {
+        if(!(percentile >= 0 && percentile <= 100))
+            throw new IllegalArgumentException("Invalid percentile: " + percentile + ".\n");
+
+        long[] snapshot = new long[BUCKETS];
+        long recorded = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if(recorded == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if(seen >= rank)
+                return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Accessor. Returns the number of durations recorded.
+     *
+     * @return
+     * 		Number of durations.
+     * */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Accessor. Returns the sum of the durations recorded.
+     *
+     * @return
+     * 		Sum of the durations in nanoseconds.
+     * */
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    /**
+     * Accessor. Returns the longest duration recorded.
+     *
+     * @return
+     * 		Longest duration in nanoseconds.
+     * */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long recorded = count.sum();
+        return (recorded == 0) ? 0 : total.sum() / NANOS_PER_MICRO / recorded;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return getPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return getPercentile(90) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return getPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return getPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+     * Returns the bucket counting a duration. Durations below 32 have a bucket each; above, the
+     * bucket is given by the highest bit of the duration and the 4 bits after it.
+     */
+    private static int bucket(long nanos) {
+        if(nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the highest duration counted by a bucket.
+     */
+    private static long highestValue(int bucket) {
+        if(bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * The LatencyHistogramMBean interface describes the attributes of a LatencyHistogram shown through
+ * JMX. Durations are given in microseconds.
+ *
+ * @author Zhen Wei Liao
+ **/
+public interface LatencyHistogramMBean {
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return
+     * 		Number of calls of the operation.
+     * */
+    long getCount();
+
+    /**
+     * Returns the mean of the durations recorded.
+     *
+     * @return
+     * 		Mean duration in microseconds, or 0 if none was recorded.
+     * */
+    double getMeanMicros();
+
+    /**
+     * Returns the median of the durations recorded.
+     *
+     * @return
+     * 		Median duration in microseconds.
+     * */
+    double getP50Micros();
+
+    /**
+     * Returns the 90th percentile of the durations recorded.
+     *
+     * @return
+     * 		90th percentile in microseconds.
+     * */
+    double getP90Micros();
+
+    /**
+     * Returns the 99th percentile of the durations recorded.
+     *
+     * @return
+     * 		99th percentile in microseconds.
+     * */
+    double getP99Micros();
+
+    /**
+     * Returns the 99.9th percentile of the durations recorded.
+     *
+     * @return
+     * 		99.9th percentile in microseconds.
+     * */
+    double getP999Micros();
+
+    /**
+     * Returns the longest duration recorded.
+     *
+     * @return
+     * 		Longest duration in microseconds.
+     * */
+    double getMaxMicros();
+
+    /**
+     * Forgets every duration recorded so far.
+     * */
+    void reset();
+}
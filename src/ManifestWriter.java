@@ -0,0 +1,259 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The ManifestWriter class writes the manifest table of a train row by row to a Writer, through a
+ * buffer, instead of building the whole table in memory. The numbers are formatted by hand into a
+ * reused row buffer, giving the same text as String.format() with the "%-15.1f" style patterns
+ * previously used by printManifest().
+ *
+ * @author Zhen Wei Liao
+ **/
+public class ManifestWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String HEADER = String.format("%-4s%-36s%-34s", " ", "CAR:", "LOAD:") + "\n"
+            + String.format("%-6s%-6s%-14s%-13s%-5s%-10s%-13s%-12s%-9s", " ", "Num", "Length (m)",
+            " Weight (t)", "|", "Name", "Weight (t)", "Value ($)", "Dangerous") + "\n"
+            + " ".repeat(4) + "=".repeat(35) + "+" + "=".repeat(51) + "\n";
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(128);
+    private char[] chars = new char[128];
+
+    /**
+     * Constructor creates a ManifestWriter writing to the given Writer.
+     *
+     * @param out
+     * 		Writer receiving the manifest. It is buffered unless it already is a BufferedWriter.
+     */
+    public ManifestWriter(Writer out) {
+        this.out = (out instanceof BufferedWriter) ? out : new BufferedWriter(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor creates a ManifestWriter writing to the given OutputStream with the default charset.
+     *
+     * @param out
+     * 		OutputStream receiving the manifest.
+     */
+    public ManifestWriter(OutputStream out) {
+        this(new OutputStreamWriter(out));
+    }
+
+    /**
+     * Writes the column titles of the manifest table followed by the separator line.
+     *
+     * @throws IOException
+     * 		when the manifest can't be written.
+     */
+    public void writeHeader() throws IOException {
+        out.write(HEADER);
+    }
+
+    /**
+     * Writes a single row of the manifest table.
+     *
+     * @param atCursor
+     *      Whether the car is referenced by the cursor.
+     *
+     * @param carNum
+     *      Number of the car, starting from 1 at the head.
+     *
+     * @param carLength
+     *      Length of the car.
+     *
+     * @param carWeight
+     *      Weight of the car.
+     *
+     * @param productName
+     *      Name of the product load, or "Empty" if the car is empty.
+     *
+     * @param loadWeight
+     *      Weight of the product load.
+     *
+     * @param loadValue
+     *      Value of the product load.
+     *
+     * @param isDangerous
+     *      Whether the product load is dangerous or not.
+     *
+     * @throws IOException
+     * 		when the manifest can't be written.
+     */
+    public void writeRow(boolean atCursor, int carNum, double carLength, double carWeight, String productName,
+                         double loadWeight, double loadValue, boolean isDangerous) throws IOException {
+        row.setLength(0);
+        appendRow(row, atCursor, carNum, carLength, carWeight, productName, loadWeight, loadValue, isDangerous);
+        writeBuffer();
+    }
+
+    /**
+     * Writes a single row of the manifest table whose car and load columns were formatted earlier
+     * by formatRowEnd(), so only the cursor and car number columns are formatted.
+     *
+     * @param atCursor
+     *      Whether the car is referenced by the cursor.
+     *
+     * @param carNum
+     *      Number of the car, starting from 1 at the head.
+     *
+     * @param rowEnd
+     *      The car and load columns returned by formatRowEnd().
+     *
+     * @throws IOException
+     * 		when the manifest can't be written.
+     */
+    public void writeRow(boolean atCursor, int carNum, String rowEnd) throws IOException {
+        row.setLength(0);
+        appendRowStart(row, atCursor, carNum);
+        row.append(rowEnd);
+        writeBuffer();
+    }
+
+    /**
+     * Formats the car and load columns of a row, which don't depend on the position of the car,
+     * so that they can be kept and given to writeRow() again as long as the car is unchanged.
+     *
+     * @return
+     *      The columns, ending with a new line.
+     */
+    public static String formatRowEnd(double carLength, double carWeight, String productName, double loadWeight,
+                                      double loadValue, boolean isDangerous) {
+        StringBuilder rowEnd = new StringBuilder(96);
+        appendRowEnd(rowEnd, carLength, carWeight, productName, loadWeight, loadValue, isDangerous);
+        return rowEnd.toString();
+    }
+
+    /**
+     * Writes the row buffer.
+     */
+    private void writeBuffer() throws IOException {
+        int length = row.length();
+        if(length > chars.length)
+            chars = new char[length];
+        row.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    /**
+     * Writes the blank line ending the manifest and flushes everything written so far.
+     *
+     * @throws IOException
+     * 		when the manifest can't be written.
+     */
+    public void finish() throws IOException {
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Appends a single row of the manifest table, the same as
+     * String.format("%-6s%-6d%-15.1f%-12.1f%-5s%-10s%-13.1f%-18.2f%-3s", ...) followed by a new line.
+     */
+    static void appendRow(StringBuilder row, boolean atCursor, int carNum, double carLength, double carWeight,
+                          String productName, double loadWeight, double loadValue, boolean isDangerous) {
+        appendRowStart(row, atCursor, carNum);
+        appendRowEnd(row, carLength, carWeight, productName, loadWeight, loadValue, isDangerous);
+    }
+
+    /**
+     * Appends the cursor and car number columns of a row.
+     */
+    private static void appendRowStart(StringBuilder row, boolean atCursor, int carNum) {
+        int column = row.length();
+        row.append((atCursor)? "->" : " ");
+        column = pad(row, column + 6);
+        row.append(carNum);
+        pad(row, column + 6);
+    }
+
+    /**
+     * Appends the car and load columns of a row, followed by a new line.
+     */
+    private static void appendRowEnd(StringBuilder row, double carLength, double carWeight, String productName,
+                                     double loadWeight, double loadValue, boolean isDangerous) {
+        int column = row.length();
+        appendFixed(row, carLength, 1);
+        column = pad(row, column + 15);
+        appendFixed(row, carWeight, 1);
+        column = pad(row, column + 12);
+        row.append('|');
+        column = pad(row, column + 5);
+        row.append(productName);
+        column = pad(row, column + 10);
+        appendFixed(row, loadWeight, 1);
+        column = pad(row, column + 13);
+        appendFixed(row, loadValue, 2);
+        pad(row, column + 18);
+        row.append((isDangerous)? "Yes" : "No ");
+        row.append('\n');
+    }
+
+    /**
+     * Appends spaces until the builder reaches the given length. Nothing is appended if it is
+     * already as long.
+     *
+     * @return
+     *      Length of the builder, where the next column starts.
+     */
+    private static int pad(StringBuilder builder, int length) {
+        while(builder.length() < length)
+            builder.append(' ');
+        return builder.length();
+    }
+
+    /**
+     * Appends a number with a fixed number of decimals, rounded half up the same way as
+     * String.format("%.nf", value).
+     *
+     * @param builder
+     *      The builder receiving the number.
+     *
+     * @param value
+     *      The number being formatted.
+     *
+     * @param decimals
+     *      Number of decimals, from 0 to 6.
+     */
+    static void appendFixed(StringBuilder builder, double value, int decimals) {
+        double magnitude = Math.abs(value);
+
+        if(Double.isNaN(value) || Double.isInfinite(value) || magnitude >= 1e12) {
+            builder.append(String.format("%." + decimals + "f", value));
+            return;
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = magnitude * scale;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        long units;
+
+        if(Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) {
+            // close to a tie: round the shortest decimal form of the value, like Formatter does
+            units = new BigDecimal(Double.toString(magnitude)).setScale(decimals, RoundingMode.HALF_UP)
+                    .unscaledValue().longValue();
+        } else
+            units = (long) floor + ((fraction > 0.5) ? 1 : 0);
+
+        if(Double.doubleToRawLongBits(value) < 0)
+            builder.append('-');
+
+        builder.append(units / scale);
+        if(decimals > 0) {
+            builder.append('.');
+            long fractionDigits = units % scale;
+            for(long digit = scale / 10; digit > 1 && fractionDigits < digit; digit /= 10)
+                builder.append('0');
+            builder.append(fractionDigits);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Predicate;
+
+/**
+ * The MeteredTrain class records in a TrainMetrics object how long the main operations of any Train
+ * take: insertAfterCursor(), removeCursor(), findProduct(), removeDangerousCars(), and
+ * writeManifest(), which renders the manifest. Failed calls are recorded as well. The other
+ * operations are passed to the train as they are.
+ * <p>
+ * A metered call costs two reads of System.nanoTime() and a few atomic additions. When the metrics
+ * are disabled, TrainManager doesn't wrap the train at all, so they cost nothing.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class MeteredTrain implements Train {
+    private final Train train;
+    private final TrainMetrics metrics;
+
+    /**
+     * Constructor creates a MeteredTrain recording the operations of the given train. The gauges of
+     * the metrics read this train from then on.
+     *
+     * @param train
+     * 		The train being metered.
+     *
+     * @param metrics
+     * 		The metrics receiving the durations.
+     *
+     * @throws IllegalArgumentException
+     * 		when the train or the metrics is null.
+     */
+    public MeteredTrain(Train train, TrainMetrics metrics) throws IllegalArgumentException {
+        if(train == null || metrics == null)
+            throw new IllegalArgumentException("The metered train and its metrics can't be null.");
+
+        this.train = train;
+        this.metrics = metrics;
+        metrics.setTrain(train);
+    }
+
+    /**
+     * Accessor. Returns the train being metered.
+     *
+     * @return
+     * 		The train being metered.
+     * */
+    public Train getTrain() {
+        return train;
+    }
+
+    /**
+     * Accessor. Returns the metrics receiving the durations.
+     *
+     * @return
+     * 		The metrics of the train.
+     * */
+    public TrainMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public TrainCar getCursorData() {
+        return train.getCursorData();
+    }
+
+    @Override
+    public void setCursorData(TrainCar car) {
+        train.setCursorData(car);
+    }
+
+    @Override
+    public void setCursorLoad(ProductLoad load) throws EmptyListException {
+        train.setCursorLoad(load);
+    }
+
+    @Override
+    public boolean cursorForward() throws EmptyListException {
+        return train.cursorForward();
+    }
+
+    @Override
+    public boolean cursorBackward() throws EmptyListException {
+        return train.cursorBackward();
+    }
+
+    @Override
+    public void insertAfterCursor(TrainCar newCar) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            train.insertAfterCursor(newCar);
+        } finally {
+            metrics.record(TrainMetrics.Operation.INSERT_AFTER_CURSOR, start);
+        }
+    }
+
+    @Override
+    public void seek(int position) throws EmptyListException, IllegalArgumentException {
+        train.seek(position);
+    }
+
+    @Override
+    public TrainCar get(int position) throws IllegalArgumentException {
+        return train.get(position);
+    }
+
+    @Override
+    public void insertAt(int position, TrainCar newCar) throws IllegalArgumentException {
+        train.insertAt(position, newCar);
+    }
+
+    @Override
+    public int getCursorPosition() {
+        return train.getCursorPosition();
+    }
+
+    @Override
+    public TrainCar removeCursor() throws EmptyListException {
+        long start = System.nanoTime();
+        try {
+            return train.removeCursor();
+        } finally {
+            metrics.record(TrainMetrics.Operation.REMOVE_CURSOR, start);
+        }
+    }
+
+    @Override
+    public ProductSearchResult findProduct(String name) {
+        long start = System.nanoTime();
+        try {
+            return train.findProduct(name);
+        } finally {
+            metrics.record(TrainMetrics.Operation.FIND_PRODUCT, start);
+        }
+    }
+
+    @Override
+    public void removeDangerousCars() throws EmptyListException {
+        long start = System.nanoTime();
+        try {
+            train.removeDangerousCars();
+        } finally {
+            metrics.record(TrainMetrics.Operation.REMOVE_DANGEROUS_CARS, start);
+        }
+    }
+
+    @Override
+    public int removeIf(Predicate<TrainCar> filter) throws IllegalArgumentException {
+        return train.removeIf(filter);
+    }
+
+    @Override
+    public int size() {
+        return train.size();
+    }
+
+    @Override
+    public double getLength() {
+        return train.getLength();
+    }
+
+    @Override
+    public double getValue() {
+        return train.getValue();
+    }
+
+    @Override
+    public double getWeight() {
+        return train.getWeight();
+    }
+
+    @Override
+    public boolean isDangerous() {
+        return train.isDangerous();
+    }
+
+    @Override
+    public int getNumOfDangerousCar() {
+        return train.getNumOfDangerousCar();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return train.isEmpty();
+    }
+
+    @Override
+    public void writeManifest(Writer out) throws IOException {
+        long start = System.nanoTime();
+        try {
+            train.writeManifest(out);
+        } finally {
+            metrics.record(TrainMetrics.Operation.WRITE_MANIFEST, start);
+        }
+    }
+
+    /**
+     * Returns the String representation of the metered train.
+     *
+     * @return
+     * 		String representation of the train.
+     * */
+    @Override
+    public String toString() {
+        return train.toString();
+    }
+}
@@ -0,0 +1,581 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The PersistentTrain class is a train whose changes can be undone and redone. Its cars are kept in
+ * an immutable TrainVersion, and every change of the cars or of their loads replaces it with a new
+ * version, built in O(log n) by sharing all the unchanged parts of the old one. The old version is
+ * kept in a bounded history, so undoing or redoing a change only swaps versions, and the history
+ * costs memory in proportion to the changes made rather than to the length of the train.
+ * <p>
+ * Moving the cursor is not a change: the cursor is put back where it was when a change is undone.
+ * Since the cars are shared by the versions, getCursorData(), get() and removeCursor() return a
+ * copy of the car, and the cars given to the train are copied as well. Use setCursorData() or
+ * setCursorLoad() to change a car.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class PersistentTrain implements Train {
+    /**
+     * Number of changes that can be undone when none is given.
+     */
+    public static final int DEFAULT_HISTORY = 100;
+
+    private final int maxHistory;
+    private final Deque<State> undoHistory = new ArrayDeque<>(), redoHistory = new ArrayDeque<>();
+
+    private TrainVersion version = TrainVersion.empty();
+    private int cursor = -1;
+
+    // product totals, counted for productsVersion and counted again once it is not the version anymore
+    private Map<String, ProductTotal> products = new HashMap<>();
+    private TrainVersion productsVersion = version;
+
+    /**
+     * The State class is a version of the train with the position of its cursor.
+     */
+    private static final class State {
+        private final TrainVersion version;
+        private final int cursor;
+
+        private State(TrainVersion version, int cursor) {
+            this.version = version;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * Constructor creates an empty PersistentTrain keeping the last DEFAULT_HISTORY changes.
+     */
+    public PersistentTrain() {
+        this(DEFAULT_HISTORY);
+    }
+
+    /**
+     * Constructor creates an empty PersistentTrain keeping the given number of changes.
+     *
+     * @param maxHistory
+     * 		Number of changes that can be undone.
+     *
+     * @throws IllegalArgumentException
+     * 		when the number of changes is negative.
+     */
+    public PersistentTrain(int maxHistory) throws IllegalArgumentException {
+        if(maxHistory < 0)
+            throw new IllegalArgumentException("Invalid. History size can't be negative.\n");
+
+        this.maxHistory = maxHistory;
+    }
+
+    /**
+     * Undoes the last change, putting back the cars and the cursor as they were before it.
+     *
+     * @return
+     * 		True if a change was undone, false if there is none left to undo.
+     * */
+    public boolean undo() {
+        if(undoHistory.isEmpty())
+            return false;
+
+        redoHistory.push(new State(version, cursor));
+        restore(undoHistory.pop());
+        return true;
+    }
+
+    /**
+     * Redoes the last change undone, as long as no other change was made since.
+     *
+     * @return
+     * 		True if a change was redone, false if there is none left to redo.
+     * */
+    public boolean redo() {
+        if(redoHistory.isEmpty())
+            return false;
+
+        undoHistory.push(new State(version, cursor));
+        restore(redoHistory.pop());
+        return true;
+    }
+
+    /**
+     * Accessor. Returns the current version of the train, which stays the same however the train
+     * changes afterwards.
+     *
+     * @return
+     * 		The current version.
+     * */
+    public TrainVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a copy of the TrainCar currently referenced by the cursor.
+     *
+     * @return
+     * 		Copy of the TrainCar currently referenced by the cursor, or null if the train is empty.
+     * */
+    public TrainCar getCursorData() {
+        if(cursor >= 0)
+            return TrainVersion.copy(version.get(cursor));
+
+        return null;
+    }
+
+    /**
+     * Replaces the car currently referenced by the cursor with a copy of the given car.
+     *
+     * @param car
+     * 		TrainCar that will be referenced by the cursor.
+     * */
+    public void setCursorData(TrainCar car) {
+        if(cursor >= 0 && car != null) {
+            TrainCar newCar = TrainVersion.copy(car);
+            change(version.set(cursor, newCar), cursor, version.get(cursor), newCar);
+        }
+    }
+
+    /**
+     * Replaces the product load of the car currently referenced by the cursor.
+     *
+     * @param load
+     * 		New product load of the car, or null to empty the car.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public void setCursorLoad(ProductLoad load) throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Please insert a train car first.\n");
+
+        TrainCar oldCar = version.get(cursor);
+        TrainCar newCar = new TrainCar(oldCar.getCarWeight(), oldCar.getCarLength());
+        newCar.setProductLoad(TrainVersion.copy(load));
+        change(version.set(cursor, newCar), cursor, oldCar, newCar);
+    }
+
+    /**
+     * Moves the cursor to the next car.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the tail.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public boolean cursorForward() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+        else if(cursor == version.size() - 1)
+            return false;
+
+        cursor++;
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the previous car.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the head.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public boolean cursorBackward() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid. No train exist.\n");
+        else if(cursor == 0)
+            return false;
+
+        cursor--;
+        return true;
+    }
+
+    /**
+     * Inserts a copy of a TrainCar into the train after the cursor position. The cursor now
+     * points to the inserted car.
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null.
+     * */
+    public void insertAfterCursor(TrainCar newCar) throws IllegalArgumentException {
+        insertAt(cursor + 1, newCar);
+    }
+
+    /**
+     * Moves the cursor to the car at the given position.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public void seek(int position) throws EmptyListException, IllegalArgumentException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+        if(position < 0 || position >= version.size())
+            throw new IllegalArgumentException("Invalid. Position must be between 0 and " + (version.size() - 1)
+                    + ".\n");
+
+        cursor = position;
+    }
+
+    /**
+     * Returns a copy of the TrainCar at the given position without moving the cursor.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @return
+     * 		Copy of the TrainCar at the given position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainCar get(int position) throws IllegalArgumentException {
+        return TrainVersion.copy(version.get(position));
+    }
+
+    /**
+     * Inserts a copy of a TrainCar into the train so that it ends up at the given position. The
+     * cursor now points to the inserted car.
+     *
+     * @param position
+     * 		Position of the inserted car, from 0 (new head) to size() (new tail).
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null or the position is out of range.
+     * */
+    public void insertAt(int position, TrainCar newCar) throws IllegalArgumentException {
+        if(newCar == null)
+            throw new IllegalArgumentException("The inserted train car can't be null.");
+
+        TrainCar car = TrainVersion.copy(newCar);
+        change(version.insertAt(position, car), position, null, car);
+    }
+
+    /**
+     * Returns the position of the car currently referenced by the cursor.
+     *
+     * @return
+     * 		Position of the cursor starting from 0 at the head, or -1 if the train is empty.
+     * */
+    public int getCursorPosition() {
+        return cursor;
+    }
+
+    /**
+     * Returns a copy of the car currently referenced by the cursor and then removes it from the
+     * train. The cursor now references the next car, or the previous car if the next one does
+     * not exist.
+     *
+     * @return
+     * 		Copy of the removed TrainCar.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public TrainCar removeCursor() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+
+        TrainCar removedCar = version.get(cursor);
+        TrainVersion next = version.removeAt(cursor);
+
+        change(next, Math.min(cursor, next.size() - 1), removedCar, null);
+        return TrainVersion.copy(removedCar);
+    }
+
+    /**
+     * Returns the totals of the product that has the same name as the desired name. They are
+     * kept up to date as the train changes, and counted again after an undo or a redo.
+     *
+     * @param name
+     * 		Name of the ProductLoad to find on the train.
+     *
+     * @return
+     * 		The number of cars carrying the product and the sums of their weights and values.
+     * */
+    public ProductSearchResult findProduct(String name) {
+        if(productsVersion != version) {
+            Map<String, ProductTotal> counted = new HashMap<>();
+
+            for(TrainCar car : version) {
+                if(!car.isEmpty())
+                    counted.computeIfAbsent(car.getProductLoad().getName(), key -> new ProductTotal())
+                            .add(car.getProductLoad());
+            }
+            products = counted;
+            productsVersion = version;
+        }
+        return ProductSearchResult.of(name, products.get(name));
+    }
+
+    /**
+     * Removes all the dangerous car from the train, while maintaining the order of the cars. Only
+     * the parts of the train holding dangerous cars are walked.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public void removeDangerousCars() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid. No train exist.\n");
+
+        removeCars(car -> !car.isEmpty() && car.getProductLoad().isDangerous(), true);
+    }
+
+    /**
+     * Removes every car matching the filter from the train, while maintaining the order of the
+     * remaining cars. The cursor references the car it referenced, or the next remaining car if
+     * that one was removed, or the previous remaining car if there is no next one.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to remove. It must not change the cars.
+     *
+     * @return
+     * 		Number of cars removed from the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter is null.
+     * */
+    public int removeIf(Predicate<TrainCar> filter) throws IllegalArgumentException {
+        if(filter == null)
+            throw new IllegalArgumentException("The filter can't be null.");
+
+        return removeCars(filter, false);
+    }
+
+    /**
+     * Returns the number of cars.
+     *
+     * @return
+     * 		Number of cars on the train.
+     * */
+    public int size() {
+        return version.size();
+    }
+
+    /**
+     * Accessor. Returns the total length of the train in meters.
+     *
+     * @return
+     * 		Total length of the train.
+     * */
+    public double getLength() {
+        return FixedPoint.toDouble(version.getLengthMillimetres(), FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the total value of products carried by the train.
+     *
+     * @return
+     * 		Sum of each car values.
+     * */
+    public double getValue() {
+        return FixedPoint.toDouble(version.getValueCents(), FixedPoint.CENTI);
+    }
+
+    /**
+     * Accessor. Returns the total weight of the train in ton.
+     *
+     * @return
+     * 		Sum each car weights plus the sum of the product loads carried by that car.
+     * */
+    public double getWeight() {
+        return FixedPoint.toDouble(version.getWeightKilograms(), FixedPoint.MILLI);
+    }
+
+    /**
+     * Tells whether there's a dangerous product on the train.
+     *
+     * @return
+     * 		True if at least one car is carrying a dangerous product, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return version.getNumOfDangerousCar() > 0;
+    }
+
+    /**
+     * Accessor. Returns the number of cars carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars on the train.
+     * */
+    public int getNumOfDangerousCar() {
+        return version.getNumOfDangerousCar();
+    }
+
+    /**
+     * Checks if the train is empty.
+     *
+     * @return
+     *      True if the train is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return version.size() == 0;
+    }
+
+    /**
+     * Writes a neatly formatted table of all the cars on the train, in the same layout as
+     * TrainLinkedList.writeManifest().
+     *
+     * @param out
+     *      Writer receiving the table.
+     *
+     * @throws IOException
+     *      when the table can't be written.
+     * */
+    public void writeManifest(Writer out) throws IOException {
+        ManifestWriter manifest = new ManifestWriter(out);
+        manifest.writeHeader();
+
+        int position = 0;
+        for(TrainCar car : version) {
+            ProductLoad load = car.getProductLoad();
+
+            if(load == null)
+                manifest.writeRow(position == cursor, position + 1, car.getCarLength(), car.getCarWeight(), "Empty",
+                        0, 0, false);
+            else
+                manifest.writeRow(position == cursor, position + 1, car.getCarLength(), car.getCarWeight(),
+                        load.getName(), load.getWeight(), load.getValue(), load.isDangerous());
+            position++;
+        }
+        manifest.finish();
+    }
+
+    /**
+     * Returns a neatly formatted String representation of the train, in the same layout as
+     * TrainLinkedList.toString().
+     *
+     * @return
+     * 		String representation of the train.
+     * */
+    @Override
+    public String toString() {
+        return TrainLinkedList.summary(size(), getLength(), getWeight(), getValue(), isDangerous());
+    }
+
+    /**
+     * Removes the cars matching a filter. The cars before the cursor and the cars from the cursor
+     * on are filtered apart, so that the new position of the cursor is known.
+     *
+     * @param dangerousOnly
+     *      True if the filter only matches dangerous cars.
+     *
+     * @return
+     *      Number of cars removed.
+     */
+    private int removeCars(Predicate<? super TrainCar> filter, boolean dangerousOnly) {
+        if(isEmpty())
+            return 0;
+
+        List<TrainCar> removed = new ArrayList<>();
+        Predicate<TrainCar> recorded = car -> {
+            if(!filter.test(car))
+                return false;
+
+            removed.add(car);
+            return true;
+        };
+
+        TrainVersion before = version.headTo(cursor).removeIf(recorded, dangerousOnly);
+        TrainVersion after = version.tailFrom(cursor).removeIf(recorded, dangerousOnly);
+
+        if(!removed.isEmpty()) {
+            boolean counted = productsVersion == version;
+            commit(before.concat(after), (after.size() > 0) ? before.size() : before.size() - 1);
+            if(counted) {
+                for(TrainCar car : removed)
+                    unindex(car);
+                productsVersion = version;
+            }
+        }
+        return removed.size();
+    }
+
+    /**
+     * Makes a new version of a single car change the current one, and updates the product totals.
+     *
+     * @param next
+     *      The new version.
+     *
+     * @param nextCursor
+     *      Position of the cursor on the new version.
+     *
+     * @param removedCar
+     *      Car taken off the train, or null.
+     *
+     * @param addedCar
+     *      Car put on the train, or null.
+     */
+    private void change(TrainVersion next, int nextCursor, TrainCar removedCar, TrainCar addedCar) {
+        boolean counted = productsVersion == version;
+        commit(next, nextCursor);
+        if(!counted)
+            return;
+
+        if(removedCar != null)
+            unindex(removedCar);
+        if(addedCar != null && !addedCar.isEmpty())
+            products.computeIfAbsent(addedCar.getProductLoad().getName(), key -> new ProductTotal())
+                    .add(addedCar.getProductLoad());
+        productsVersion = version;
+    }
+
+    /**
+     * Removes the product load of a car taken off the train from the product totals.
+     */
+    private void unindex(TrainCar car) {
+        ProductLoad load = car.getProductLoad();
+        if(load == null)
+            return;
+
+        ProductTotal total = products.get(load.getName());
+        total.subtract(load);
+        if(total.isEmpty())
+            products.remove(load.getName());
+    }
+
+    /**
+     * Makes a new version the current one, keeping the old one in the undo history and
+     * forgetting the changes that could be redone.
+     */
+    private void commit(TrainVersion next, int nextCursor) {
+        if(maxHistory > 0) {
+            undoHistory.push(new State(version, cursor));
+            if(undoHistory.size() > maxHistory)
+                undoHistory.removeLast();
+        }
+        redoHistory.clear();
+
+        version = next;
+        cursor = nextCursor;
+    }
+
+    /**
+     * Makes a version of the history the current one.
+     */
+    private void restore(State state) {
+        version = state.version;
+        cursor = state.cursor;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * The Product class describes a kind of product carried by the train: its name and whether it is
+ * dangerous. Products are shared by all the loads of the same kind, so they are only created by
+ * the ProductCatalog, which gives a single Product per name and dangerousness. Two products can
+ * therefore be compared with ==.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class Product {
+    private final String name;
+    private final boolean isDangerous;
+
+    /**
+     * Constructor creates a Product object. Use ProductCatalog.get() to obtain the shared instance.
+     *
+     * @param name
+     * 		Name of the product.
+     *
+     * @param isDangerous
+     * 		Whether the product is dangerous.
+     */
+    Product(String name, boolean isDangerous) {
+        this.name = name;
+        this.isDangerous = isDangerous;
+    }
+
+    /**
+     * Accessor. Returns the name of the product.
+     *
+     * @return
+     * 		Name of the product.
+     * */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Accessor. Tells if the product is dangerous or not.
+     *
+     * @return
+     * 		True if the product is dangerous, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return isDangerous;
+    }
+
+    /**
+     * Returns the name of the product.
+     *
+     * @return
+     * 		Name of the product.
+     * */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,115 @@
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ProductCatalog class keeps a single Product object for every name and dangerousness loaded
+ * on a train, so that the loads of the same kind share it instead of each holding their own copy
+ * of the name. The dangerous and safe products of the same name also share the name String.
+ * <p>
+ * The catalog only holds its products weakly: a product stays in it as long as a product load
+ * uses it, and is dropped once the garbage collector has reclaimed it, so the names of products
+ * that were imported and then unloaded don't stay in memory for the lifetime of the program.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class ProductCatalog {
+    private static final Map<String, ProductReference> SAFE = new ConcurrentHashMap<>();
+    private static final Map<String, ProductReference> DANGEROUS = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Product> RECLAIMED = new ReferenceQueue<>();
+
+    // products of loads whose name was not set yet
+    private static final Product UNNAMED_SAFE = new Product(null, false);
+    private static final Product UNNAMED_DANGEROUS = new Product(null, true);
+
+    /**
+     * The ProductReference class is a weak reference to a product of the catalog, which remembers
+     * the entry to remove once the product is reclaimed.
+     */
+    private static final class ProductReference extends WeakReference<Product> {
+        private final String name;
+        private final boolean isDangerous;
+
+        private ProductReference(Product product) {
+            super(product, RECLAIMED);
+            this.name = product.getName();
+            this.isDangerous = product.isDangerous();
+        }
+    }
+
+    /**
+     * Constructor is private since the class only has static methods.
+     */
+    private ProductCatalog() {
+
+    }
+
+    /**
+     * Returns the shared Product of a name and dangerousness, adding it to the catalog if needed.
+     *
+     * @param name
+     * 		Name of the product, or null for a product not named yet.
+     *
+     * @param isDangerous
+     * 		Whether the product is dangerous.
+     *
+     * @return
+     * 		The shared Product.
+     */
+    public static Product get(String name, boolean isDangerous) {
+        if(name == null)
+            return (isDangerous) ? UNNAMED_DANGEROUS : UNNAMED_SAFE;
+
+        removeReclaimed();
+        Map<String, ProductReference> products = (isDangerous) ? DANGEROUS : SAFE;
+
+        while(true) {
+            ProductReference reference = products.get(name);
+            Product product = (reference == null) ? null : reference.get();
+            if(product != null)
+                return product;
+
+            product = new Product(canonicalName(name, !isDangerous), isDangerous);
+            ProductReference added = new ProductReference(product);
+            boolean stored = (reference == null) ? products.putIfAbsent(name, added) == null
+                    : products.replace(name, reference, added);
+            if(stored)
+                return product;
+        }
+    }
+
+    /**
+     * Returns the number of products in the catalog.
+     *
+     * @return
+     * 		Number of products.
+     */
+    public static int size() {
+        removeReclaimed();
+        return SAFE.size() + DANGEROUS.size();
+    }
+
+    /**
+     * Returns the name String already held by the product of the same name and the other
+     * dangerousness, or the given name if there is none.
+     */
+    private static String canonicalName(String name, boolean isDangerous) {
+        ProductReference reference = ((isDangerous) ? DANGEROUS : SAFE).get(name);
+        Product other = (reference == null) ? null : reference.get();
+        return (other == null) ? name : other.getName();
+    }
+
+    /**
+     * Removes the entries of the products reclaimed by the garbage collector. An entry already
+     * replaced by a new product of the same name is left alone.
+     */
+    private static void removeReclaimed() {
+        Reference<? extends Product> reclaimed;
+        while((reclaimed = RECLAIMED.poll()) != null) {
+            ProductReference reference = (ProductReference) reclaimed;
+            ((reference.isDangerous) ? DANGEROUS : SAFE).remove(reference.name, reference);
+        }
+    }
+}
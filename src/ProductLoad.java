@@ -1,14 +1,14 @@
 /**
  * The ProductLoad class contains basic product information for a specific train car,
  * such as the name of the product, the weight, the value, and whether the product
- * itself is dangerous or not.
+ * itself is dangerous or not. The name and the dangerousness are held by a Product shared with
+ * all the loads of the same kind (see ProductCatalog); each load only stores its own quantities.
  *
  * @author Zhen Wei Liao
  **/
 public class ProductLoad {
-    private String name;
-    private double weight, value;
-    private boolean isDangerous;
+    private Product product = ProductCatalog.get(null, false);
+    private long weight, value;  // kilograms, cents
 
     /**
      * Constructor creates an empty ProductLoad object
@@ -31,12 +31,36 @@ public class ProductLoad {
      * @param isDangerous
      * 		Whether the product is dangerous.
      *
+     * @throws IllegalArgumentException
+     * 		when the weight or the value is negative.
      */
-    public ProductLoad(String name, double weight, double value, boolean isDangerous){
-        this.name = name;
-        this.weight = weight;
-        this.value = value;
-        this.isDangerous = isDangerous;
+    public ProductLoad(String name, double weight, double value, boolean isDangerous)
+            throws IllegalArgumentException {
+        this(ProductCatalog.get(name, isDangerous), weight, value);
+    }
+
+    /**
+     * Constructor creates a new product load of a product from the catalog.
+     *
+     * @param product
+     * 		The product, as returned by ProductCatalog.get().
+     *
+     * @param weight
+     * 		Weight of the product.
+     *
+     * @param value
+     * 		Value of the product.
+     *
+     * @throws IllegalArgumentException
+     * 		when the product is null, or the weight or the value is negative.
+     */
+    public ProductLoad(Product product, double weight, double value) throws IllegalArgumentException {
+        if(product == null)
+            throw new IllegalArgumentException("Invalid inputs. Product can't be null.\n");
+
+        this.product = product;
+        setWeight(weight);
+        setValue(value);
     }
 
     /*
@@ -46,7 +70,18 @@ public class ProductLoad {
      * 		name of the product
      * */
     public String getName() {
-        return name;
+        return product.getName();
+    }
+
+    /**
+     * Accessor. Returns the shared Product of the load.
+     *
+     * @return
+     * 		The product, holding the name and the dangerousness.
+     *
+     */
+    public Product getProduct() {
+        return product;
     }
 
     /**
@@ -57,6 +92,17 @@ public class ProductLoad {
      *
      */
     public double getWeight() {
+        return FixedPoint.toDouble(weight, FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the exact weight of the product in kilograms.
+     *
+     * @return
+     * 		Weight of the product in kilograms.
+     *
+     */
+    public long getWeightKilograms() {
         return weight;
     }
 
@@ -68,6 +114,17 @@ public class ProductLoad {
      *
      */
     public double getValue() {
+        return FixedPoint.toDouble(value, FixedPoint.CENTI);
+    }
+
+    /**
+     * Accessor. Returns the exact value of the product in cents.
+     *
+     * @return
+     * 		Value of the product in cents.
+     *
+     */
+    public long getValueCents() {
         return value;
     }
 
@@ -79,7 +136,7 @@ public class ProductLoad {
      *
      */
     public boolean isDangerous() {
-        return isDangerous;
+        return product.isDangerous();
     }
 
     /**
@@ -90,7 +147,7 @@ public class ProductLoad {
      *
      */
     public void setName(String name) {
-        this.name = name;
+        product = ProductCatalog.get(name, product.isDangerous());
     }
 
     /**
@@ -107,7 +164,7 @@ public class ProductLoad {
         if(weight < 0)
             throw new IllegalArgumentException("Invalid inputs. Weight can't be negative.\n");
 
-        this.weight = weight;
+        this.weight = FixedPoint.toUnits(weight, FixedPoint.MILLI);
     }
 
     /**
@@ -124,7 +181,7 @@ public class ProductLoad {
         if(value < 0)
             throw new IllegalArgumentException("Invalid inputs. Value can't be negative.\n");
 
-        this.value = value;
+        this.value = FixedPoint.toUnits(value, FixedPoint.CENTI);
     }
 
     /**
@@ -135,7 +192,27 @@ public class ProductLoad {
      *
      */
     public void setIsDangerous(boolean isDangerous) {
-        this.isDangerous = isDangerous;
+        product = ProductCatalog.get(product.getName(), isDangerous);
+    }
+
+    /**
+     * Modifier. Modifies the product, weight, and value of the load, the weight and value given
+     * in units.
+     *
+     * @param product
+     * 		The shared Product of the load.
+     *
+     * @param weight
+     * 		Weight of the product in kilograms.
+     *
+     * @param value
+     * 		Value of the product in cents.
+     *
+     */
+    void setUnits(Product product, long weight, long value) {
+        this.product = product;
+        this.weight = weight;
+        this.value = value;
     }
 
     /**
@@ -148,10 +225,10 @@ public class ProductLoad {
      */
     @Override
     public String toString() {
-        return "Product Name: " + name + "\n"
-                +"Weight: " + weight + "t \n"
-                +"Value: " + value + "$ \n"
-                +"Dangerous: " + ((isDangerous)? "Yes" : "No") + "\n";
+        return "Product Name: " + getName() + "\n"
+                +"Weight: " + getWeight() + "t \n"
+                +"Value: " + getValue() + "$ \n"
+                +"Dangerous: " + ((isDangerous())? "Yes" : "No") + "\n";
     }
 
     /**
@@ -172,7 +249,18 @@ public class ProductLoad {
 
         ProductLoad objAsPL = (ProductLoad) obj;
 
-        return objAsPL.name.equals(this.name) && objAsPL.isDangerous == this.isDangerous
-                && Double.compare(objAsPL.value, this.value) == 0 && Double.compare(objAsPL.weight, this.weight) == 0;
+        return objAsPL.product == this.product && objAsPL.value == this.value && objAsPL.weight == this.weight;
+    }
+
+    /**
+     * Returns a hash code consistent with equals().
+     *
+     * @return
+     * 		Hash code of the load.
+     *
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * System.identityHashCode(product) + Long.hashCode(weight)) + Long.hashCode(value);
     }
 }
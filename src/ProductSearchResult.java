@@ -0,0 +1,119 @@
+/**
+ * The ProductSearchResult class holds the result of searching a train for a product: the number
+ * of cars carrying it, the sum of their weights and values, and whether any of them is dangerous.
+ * It only holds data, so searching never prints anything; see TrainRenderer for the output.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class ProductSearchResult {
+    private final String name;
+    private final int numOfCar;
+    private final double weight, value;
+    private final boolean isDangerous;
+
+    /**
+     * Constructor creates a ProductSearchResult object.
+     *
+     * @param name
+     * 		Name of the product searched for.
+     *
+     * @param numOfCar
+     * 		Number of cars carrying the product.
+     *
+     * @param weight
+     * 		Sum of the weights of the product.
+     *
+     * @param value
+     * 		Sum of the values of the product.
+     *
+     * @param isDangerous
+     * 		Whether any car carries the product as dangerous.
+     */
+    public ProductSearchResult(String name, int numOfCar, double weight, double value, boolean isDangerous) {
+        this.name = name;
+        this.numOfCar = numOfCar;
+        this.weight = weight;
+        this.value = value;
+        this.isDangerous = isDangerous;
+    }
+
+    /**
+     * Creates the result of a search for a product, from its running totals.
+     *
+     * @param name
+     * 		Name of the product searched for.
+     *
+     * @param total
+     * 		Running totals of the product, or null if no car carries it.
+     *
+     * @return
+     * 		The result of the search.
+     */
+    public static ProductSearchResult of(String name, ProductTotal total) {
+        if(total == null)
+            return new ProductSearchResult(name, 0, 0, 0, false);
+
+        return new ProductSearchResult(name, total.getNumOfCar(), total.getWeight(), total.getValue(),
+                total.isDangerous());
+    }
+
+    /**
+     * Accessor. Returns the name of the product searched for.
+     *
+     * @return
+     * 		Name of the product.
+     * */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Accessor. Returns the number of cars carrying the product.
+     *
+     * @return
+     * 		Number of cars carrying the product.
+     * */
+    public int getNumOfCar() {
+        return numOfCar;
+    }
+
+    /**
+     * Accessor. Returns the sum of the weights of the product.
+     *
+     * @return
+     * 		Sum of the weights of the product.
+     * */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Accessor. Returns the sum of the values of the product.
+     *
+     * @return
+     * 		Sum of the values of the product.
+     * */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Tells if any car carries the product as dangerous.
+     *
+     * @return
+     * 		True if at least one car carries the product as dangerous, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return isDangerous;
+    }
+
+    /**
+     * Tells if the product was found on the train.
+     *
+     * @return
+     * 		True if at least one car carries the product, false otherwise.
+     * */
+    public boolean isFound() {
+        return numOfCar > 0;
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.stream.Collector;
+
+/**
+ * The ProductTotal class keeps the running totals of a single product carried by
+ * the train, such as the number of cars carrying it, the sum of the weights, the sum of the
+ * values, and the number of those cars that are dangerous. It also serves as the result of
+ * rollups over any selection of cars, see collector().
+ *
+ * @author Zhen Wei Liao
+ **/
+public class ProductTotal {
+    private int numOfCar, numOfDangerousCar;
+    private long weight, value;  // kilograms, cents
+
+    /**
+     * Constructor creates an empty ProductTotal object.
+     */
+    public ProductTotal() {
+
+    }
+
+    /**
+     * Accessor. Returns the number of cars carrying the product.
+     *
+     * @return
+     * 		Number of cars carrying the product.
+     * */
+    public int getNumOfCar() {
+        return numOfCar;
+    }
+
+    /**
+     * Accessor. Returns the number of cars carrying the product as dangerous.
+     *
+     * @return
+     * 		Number of dangerous cars carrying the product.
+     * */
+    public int getNumOfDangerousCar() {
+        return numOfDangerousCar;
+    }
+
+    /**
+     * Accessor. Returns the sum of the product weights.
+     *
+     * @return
+     * 		Sum of the product weights.
+     * */
+    public double getWeight() {
+        return FixedPoint.toDouble(weight, FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the sum of the product values.
+     *
+     * @return
+     * 		Sum of the product values.
+     * */
+    public double getValue() {
+        return FixedPoint.toDouble(value, FixedPoint.CENTI);
+    }
+
+    /**
+     * Tells if at least one car carrying the product is dangerous.
+     *
+     * @return
+     * 		True if at least one car carries the product as dangerous, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return numOfDangerousCar > 0;
+    }
+
+    /**
+     * Tells if no car is carrying the product anymore.
+     *
+     * @return
+     * 		True if the number of cars is 0, false otherwise.
+     * */
+    public boolean isEmpty() {
+        return numOfCar == 0;
+    }
+
+    /**
+     * Adds a product load to the totals.
+     *
+     * @param load
+     * 		The product load put on a car.
+     * */
+    public void add(ProductLoad load) {
+        numOfCar++;
+        weight += load.getWeightKilograms();
+        value += load.getValueCents();
+
+        if(load.isDangerous())
+            numOfDangerousCar++;
+    }
+
+    /**
+     * Adds the totals of another ProductTotal to these totals.
+     *
+     * @param other
+     * 		The totals being added.
+     *
+     * @return
+     * 		This ProductTotal.
+     * */
+    public ProductTotal merge(ProductTotal other) {
+        numOfCar += other.numOfCar;
+        numOfDangerousCar += other.numOfDangerousCar;
+        weight += other.weight;
+        value += other.value;
+        return this;
+    }
+
+    /**
+     * Returns a Collector summing the product loads of train cars, empty cars being skipped,
+     * for example to roll up the weight and value of the cars found by TrainLinkedList.aggregate().
+     *
+     * @return
+     * 		Collector of the totals of the product loads.
+     * */
+    public static Collector<TrainCar, ProductTotal, ProductTotal> collector() {
+        return Collector.of(ProductTotal::new, (total, car) -> {
+            if(!car.isEmpty())
+                total.add(car.getProductLoad());
+        }, ProductTotal::merge, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Removes a product load from the totals.
+     *
+     * @param load
+     * 		The product load taken off a car.
+     * */
+    public void subtract(ProductLoad load) {
+        numOfCar--;
+        weight -= load.getWeightKilograms();
+        value -= load.getValueCents();
+
+        if(load.isDangerous())
+            numOfDangerousCar--;
+    }
+}
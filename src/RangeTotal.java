@@ -0,0 +1,97 @@
+/**
+ * The RangeTotal class holds the totals of a run of consecutive cars of a train: the number of
+ * cars, their total length, weight, and value, and how many of them carry a dangerous product.
+ * It only holds data; see TrainLinkedList.rangeTotal() for the query.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class RangeTotal {
+    private final int numOfCar, numOfDangerousCar;
+    private final double length, weight, value;
+
+    /**
+     * Constructor creates a RangeTotal object.
+     *
+     * @param numOfCar
+     * 		Number of cars in the run.
+     *
+     * @param length
+     * 		Total length of the cars in meters.
+     *
+     * @param weight
+     * 		Total weight of the cars in tons, product loads included.
+     *
+     * @param value
+     * 		Total value of the product loads.
+     *
+     * @param numOfDangerousCar
+     * 		Number of cars carrying a dangerous product.
+     */
+    public RangeTotal(int numOfCar, double length, double weight, double value, int numOfDangerousCar) {
+        this.numOfCar = numOfCar;
+        this.length = length;
+        this.weight = weight;
+        this.value = value;
+        this.numOfDangerousCar = numOfDangerousCar;
+    }
+
+    /**
+     * Accessor. Returns the number of cars in the run.
+     *
+     * @return
+     * 		Number of cars.
+     * */
+    public int getNumOfCar() {
+        return numOfCar;
+    }
+
+    /**
+     * Accessor. Returns the total length of the cars in meters.
+     *
+     * @return
+     * 		Total length of the cars.
+     * */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Accessor. Returns the total weight of the cars in tons, product loads included.
+     *
+     * @return
+     * 		Total weight of the cars.
+     * */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Accessor. Returns the total value of the products carried by the cars.
+     *
+     * @return
+     * 		Total value of the cars.
+     * */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Accessor. Returns the number of cars carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars.
+     * */
+    public int getNumOfDangerousCar() {
+        return numOfDangerousCar;
+    }
+
+    /**
+     * Tells whether any of the cars carries a dangerous product.
+     *
+     * @return
+     * 		True if at least one car is carrying a dangerous product, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return numOfDangerousCar > 0;
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Predicate;
+
+/**
+ * The Train interface describes the operations of a train with a cursor, independently of how the
+ * cars are stored. TrainManager works with this interface, so the storage can be chosen at startup
+ * through the TrainFactory class. The operations return their results instead of printing them;
+ * TrainRenderer prints them for a user.
+ *
+ * @author Zhen Wei Liao
+ **/
+public interface Train {
+
+    /**
+     * Returns the TrainCar currently referenced by the cursor.
+     *
+     * @return
+     * 		TrainCar currently referenced by the cursor, or null if the train is empty.
+     * */
+    TrainCar getCursorData();
+
+    /**
+     * Modifies the TrainCar currently referenced by the cursor.
+     *
+     * @param car
+     * 		TrainCar that will be referenced by the cursor.
+     * */
+    void setCursorData(TrainCar car);
+
+    /**
+     * Replaces the product load of the car currently referenced by the cursor, and updates the
+     * totals of the train.
+     *
+     * @param load
+     * 		New product load of the car, or null to empty the car.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    void setCursorLoad(ProductLoad load) throws EmptyListException;
+
+    /**
+     * Moves the cursor to the next car, or keeps it at the tail.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the tail.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    boolean cursorForward() throws EmptyListException;
+
+    /**
+     * Moves the cursor to the previous car, or keeps it at the head.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the head.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    boolean cursorBackward() throws EmptyListException;
+
+    /**
+     * Inserts a TrainCar after the cursor position and moves the cursor to it.
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null.
+     * */
+    void insertAfterCursor(TrainCar newCar) throws IllegalArgumentException;
+
+    /**
+     * Moves the cursor to the car at the given position.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    void seek(int position) throws EmptyListException, IllegalArgumentException;
+
+    /**
+     * Returns the TrainCar at the given position without moving the cursor.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @return
+     * 		TrainCar at the given position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    TrainCar get(int position) throws IllegalArgumentException;
+
+    /**
+     * Inserts a TrainCar so that it ends up at the given position and moves the cursor to it.
+     *
+     * @param position
+     * 		Position of the inserted car, from 0 (new head) to size() (new tail).
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null or the position is out of range.
+     * */
+    void insertAt(int position, TrainCar newCar) throws IllegalArgumentException;
+
+    /**
+     * Returns the position of the car currently referenced by the cursor.
+     *
+     * @return
+     * 		Position of the cursor starting from 0 at the head, or -1 if the train is empty.
+     * */
+    int getCursorPosition();
+
+    /**
+     * Removes the car currently referenced by the cursor from the train.
+     *
+     * @return
+     * 		The removed TrainCar.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    TrainCar removeCursor() throws EmptyListException;
+
+    /**
+     * Finds the number of cars carrying the product and the sum of their weights and values.
+     *
+     * @param name
+     * 		Name of the product to find on the train.
+     *
+     * @return
+     * 		The result of the search.
+     * */
+    ProductSearchResult findProduct(String name);
+
+    /**
+     * Removes all the dangerous cars from the train, while maintaining the order of the other cars.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    void removeDangerousCars() throws EmptyListException;
+
+    /**
+     * Removes every car matching the filter from the train, while maintaining the order of the
+     * remaining cars.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to remove.
+     *
+     * @return
+     * 		Number of cars removed from the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter is null.
+     * */
+    int removeIf(Predicate<TrainCar> filter) throws IllegalArgumentException;
+
+    /**
+     * Returns the number of cars.
+     *
+     * @return
+     * 		Number of cars on the train.
+     * */
+    int size();
+
+    /**
+     * Returns the total length of the train in meters.
+     *
+     * @return
+     * 		Total length of the train.
+     * */
+    double getLength();
+
+    /**
+     * Returns the total value of products carried by the train.
+     *
+     * @return
+     * 		Sum of each car values.
+     * */
+    double getValue();
+
+    /**
+     * Returns the total weight of the train in ton.
+     *
+     * @return
+     * 		Sum of each car weights plus the sum of the product loads carried by the cars.
+     * */
+    double getWeight();
+
+    /**
+     * Tells whether there's a dangerous product on the train.
+     *
+     * @return
+     * 		True if at least one car is carrying a dangerous product, false otherwise.
+     * */
+    boolean isDangerous();
+
+    /**
+     * Returns the number of cars carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars on the train.
+     * */
+    int getNumOfDangerousCar();
+
+    /**
+     * Checks if the train is empty.
+     *
+     * @return
+     *      True if the train is empty, false otherwise.
+     */
+    boolean isEmpty();
+
+    /**
+     * Writes a neatly formatted table of all the cars on the train, one row at a time.
+     *
+     * @param out
+     *      Writer receiving the table.
+     *
+     * @throws IOException
+     *      when the table can't be written.
+     * */
+    void writeManifest(Writer out) throws IOException;
+}
@@ -6,7 +6,7 @@
  *
  */
 public class TrainCar {
-    private double carLength, carWeight;
+    private long carLength, carWeight;  // millimetres, kilograms
     private ProductLoad load;
 
     /**
@@ -32,8 +32,8 @@ public class TrainCar {
         if(carWeight < 0)
             throw new IllegalArgumentException("Invalid. Weight can't be negative.\n");
 
-        this.carLength = carLength;
-        this.carWeight = carWeight;
+        this.carLength = FixedPoint.toUnits(carLength, FixedPoint.MILLI);
+        this.carWeight = FixedPoint.toUnits(carWeight, FixedPoint.MILLI);
     }
 
     /**
@@ -44,6 +44,17 @@ public class TrainCar {
      *
      */
     public double getCarLength() {
+        return FixedPoint.toDouble(carLength, FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the exact length of the train car in millimetres.
+     *
+     * @return
+     * 		Length of the train car in millimetres.
+     *
+     */
+    public long getCarLengthMillimetres() {
         return carLength;
     }
 
@@ -55,6 +66,17 @@ public class TrainCar {
      *
      */
     public double getCarWeight() {
+        return FixedPoint.toDouble(carWeight, FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the exact weight of the train car in kilograms.
+     *
+     * @return
+     * 		Weight of the train car in kilograms.
+     *
+     */
+    public long getCarWeightKilograms() {
         return carWeight;
     }
 
@@ -80,6 +102,21 @@ public class TrainCar {
         this.load = load;
     }
 
+    /**
+     * Modifier. Modifies the length and weight of the train car, given in units.
+     *
+     * @param carLength
+     * 		Length of the train car in millimetres.
+     *
+     * @param carWeight
+     * 		Weight of the train car in kilograms.
+     *
+     */
+    void setUnits(long carLength, long carWeight) {
+        this.carLength = carLength;
+        this.carWeight = carWeight;
+    }
+
     /**
      * Tells if the product load of the train car is empty or not
      *
@@ -100,8 +137,8 @@ public class TrainCar {
      */
     @Override
     public String toString() {
-        return "Car Length: " + carLength + "m \n"
-                +"Car Weight: " + carWeight + "t \n"
+        return "Car Length: " + getCarLength() + "m \n"
+                +"Car Weight: " + getCarWeight() + "t \n"
                 +"Load: \n" + load.toString();
     }
 
@@ -123,7 +160,7 @@ public class TrainCar {
 
         TrainCar objAsTrain = (TrainCar) obj;
 
-        return Double.compare(objAsTrain.carLength, this.carLength) == 0
-                && Double.compare(objAsTrain.carWeight, this.carWeight) == 0 && objAsTrain.load.equals(this.load);
+        return objAsTrain.carLength == this.carLength
+                && objAsTrain.carWeight == this.carWeight && objAsTrain.load.equals(this.load);
     }
 }
@@ -9,6 +9,8 @@ public class TrainCarNode {
     private TrainCarNode prev;
     private TrainCarNode next;
     private TrainCar car;
+    private CarIndex.Entry indexEntry;
+    private String manifestRow;
 
     /**
      * Constructor creates an empty TrainCarNode object.
@@ -85,6 +87,49 @@ public class TrainCarNode {
      * */
     public void setCar(TrainCar car) {
         this.car = car;
+        manifestRow = null;
+    }
+
+    /**
+     * Accessor. Returns the entry of the node in the position index of its train.
+     *
+     * @return
+     * 		Entry of the node in the CarIndex, or null if the node is not indexed.
+     * */
+    CarIndex.Entry getIndexEntry() {
+        return indexEntry;
+    }
+
+    /**
+     * Modifier. Modifies the entry of the node in the position index of its train.
+     *
+     * @param indexEntry
+     * 		Entry of the node in the CarIndex.
+     * */
+    void setIndexEntry(CarIndex.Entry indexEntry) {
+        this.indexEntry = indexEntry;
+    }
+
+    /**
+     * Accessor. Returns the car and load columns of the manifest row of the car, as formatted by
+     * ManifestWriter.formatRowEnd() the last time the manifest was written.
+     *
+     * @return
+     * 		The formatted columns, or null if they were never formatted or the car changed since.
+     * */
+    String getManifestRow() {
+        return manifestRow;
+    }
+
+    /**
+     * Modifier. Keeps the formatted car and load columns of the manifest row of the car. They are
+     * dropped when the car is replaced; TrainLinkedList drops them when the load changes.
+     *
+     * @param manifestRow
+     * 		The formatted columns, or null to drop them.
+     * */
+    void setManifestRow(String manifestRow) {
+        this.manifestRow = manifestRow;
     }
 
     /**
@@ -0,0 +1,232 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The TrainCsv class imports cars from a CSV file into a TrainLinkedList and exports a train to one.
+ * <p>
+ * Every row describes a car: car length, car weight, product name, product weight, product value,
+ * and whether the product is dangerous (y/n). The product fields are left empty for an empty car.
+ * An optional first row of column titles is skipped. Files are streamed line by line, so they may
+ * be larger than memory allows for a single String.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainCsv {
+    private static final String HEADER = "car length,car weight,product,product weight,value,dangerous\n";
+    private static final int COLUMNS = 6;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Constructor is private since the class only has static methods.
+     */
+    private TrainCsv() {
+
+    }
+
+    /**
+     * Appends the cars of a CSV file at the tail of a train.
+     *
+     * @param path
+     * 		The CSV file being imported.
+     *
+     * @param train
+     * 		The train receiving the cars.
+     *
+     * @return
+     * 		Number of cars appended.
+     *
+     * @throws IOException
+     * 		when the file can't be read or a row is invalid. The cars of the rows before the
+     * 		invalid one stay on the train.
+     */
+    public static int read(Path path, TrainLinkedList train) throws IOException {
+        try(InputStream in = Files.newInputStream(path)) {
+            return read(in, train);
+        }
+    }
+
+    /**
+     * Appends the cars of a CSV stream at the tail of a train. The cars are linked and counted in
+     * the totals as they are read, and added to the position index at once at the end.
+     *
+     * @param in
+     * 		The CSV stream, encoded in UTF-8.
+     *
+     * @param train
+     * 		The train receiving the cars.
+     *
+     * @return
+     * 		Number of cars appended.
+     *
+     * @throws IOException
+     * 		when the stream can't be read or a row is invalid. The cars of the rows before the
+     * 		invalid one stay on the train.
+     */
+    public static int read(InputStream in, TrainLinkedList train) throws IOException {
+        CommandTokenizer row = new CommandTokenizer(in, ',');
+        TrainCarNode first = null;
+        int count = 0;
+
+        try {
+            while(row.nextLine()) {
+                if(row.tokenCount() == 0 || (row.getLineNumber() == 1 && isHeader(row)))
+                    continue;
+
+                TrainCarNode node = train.appendUnindexed(parseCar(row));
+                if(first == null)
+                    first = node;
+                count++;
+            }
+        } finally {
+            if(first != null)
+                train.indexFrom(first);
+        }
+        return count;
+    }
+
+    /**
+     * Writes a train to a CSV file, replacing it if it exists.
+     *
+     * @param train
+     * 		The train being exported.
+     *
+     * @param path
+     * 		The CSV file being written.
+     *
+     * @throws IOException
+     * 		when the file can't be written.
+     */
+    public static void write(TrainLinkedList train, Path path) throws IOException {
+        try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(train, out);
+        }
+    }
+
+    /**
+     * Writes a train as CSV, one row per car from the head, after a row of column titles.
+     * The quantities are written from the units the cars hold them in, with three decimals for
+     * lengths and weights and two for values, so importing the file gives back the same quantities.
+     *
+     * @param train
+     * 		The train being exported.
+     *
+     * @param out
+     * 		Writer receiving the rows. It is buffered unless it already is a BufferedWriter, and
+     * 		flushed but not closed.
+     *
+     * @throws IOException
+     * 		when the rows can't be written.
+     */
+    public static void write(TrainLinkedList train, Writer out) throws IOException {
+        Writer writer = (out instanceof BufferedWriter) ? out : new BufferedWriter(out, BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(128);
+        char[] chars = new char[128];
+
+        writer.write(HEADER);
+        for(TrainCarNode node = train.getHead(); node != null; node = node.getNext()) {
+            TrainCar car = node.getCar();
+            ProductLoad load = car.getProductLoad();
+
+            line.setLength(0);
+            FixedPoint.append(line, car.getCarLengthMillimetres(), FixedPoint.MILLI);
+            line.append(',');
+            FixedPoint.append(line, car.getCarWeightKilograms(), FixedPoint.MILLI);
+            line.append(',');
+            if(load == null)
+                line.append(",,,");
+            else {
+                appendName(line, load.getName());
+                line.append(',');
+                FixedPoint.append(line, load.getWeightKilograms(), FixedPoint.MILLI);
+                line.append(',');
+                FixedPoint.append(line, load.getValueCents(), FixedPoint.CENTI);
+                line.append(',').append(load.isDangerous() ? 'y' : 'n');
+            }
+            line.append('\n');
+
+            int length = line.length();
+            if(length > chars.length)
+                chars = new char[length];
+            line.getChars(0, length, chars, 0);
+            writer.write(chars, 0, length);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Tells if a row is made of column titles rather than numbers.
+     */
+    private static boolean isHeader(CommandTokenizer row) {
+        try {
+            row.number(0);
+            return false;
+        } catch(NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Creates the car described by a row.
+     *
+     * @param row
+     *      Tokenizer positioned on the row.
+     *
+     * @throws IOException
+     *      when the row is invalid.
+     */
+    private static TrainCar parseCar(CommandTokenizer row) throws IOException {
+        if(row.tokenCount() != COLUMNS)
+            throw invalid(row, "expected " + COLUMNS + " fields, found " + row.tokenCount() + ".");
+
+        try {
+            TrainCar car = new TrainCar(row.number(1), row.number(0));
+
+            String name = row.token(2);
+            if(name.isEmpty())
+                return car;
+
+            String dangerous = row.token(5);
+            if(!dangerous.equalsIgnoreCase("y") && !dangerous.equalsIgnoreCase("n"))
+                throw invalid(row, "dangerous must be y or n.");
+
+            Product product = ProductCatalog.get(name, dangerous.equalsIgnoreCase("y"));
+            car.setProductLoad(new ProductLoad(product, row.number(3), row.number(4)));
+            return car;
+        } catch(NumberFormatException e) {
+            throw invalid(row, "invalid number.");
+        } catch(IllegalArgumentException e) {
+            throw invalid(row, e.getMessage().trim());
+        }
+    }
+
+    /**
+     * Creates the exception reporting an invalid row.
+     */
+    private static IOException invalid(CommandTokenizer row, String message) {
+        return new IOException("Invalid CSV file: line " + row.getLineNumber() + ": " + message);
+    }
+
+    /**
+     * Appends a product name, quoting it if it holds a comma, a double quote, or surrounding spaces.
+     */
+    private static void appendName(StringBuilder line, String name) {
+        if(name.indexOf(',') < 0 && name.indexOf('"') < 0 && name.equals(name.trim())) {
+            line.append(name);
+            return;
+        }
+
+        line.append('"');
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(c == '"')
+                line.append('"');
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * The TrainCursor class is a cursor handle on a TrainLinkedList, opened with
+ * TrainLinkedList.openCursor(). Each handle has its own position, so several operators can work on
+ * different parts of the same train without moving the shared cursor or each other's handles.
+ * <p>
+ * When the car referenced by a handle is removed, whether through this handle, another handle, or
+ * the shared cursor, the handle moves to the next car, or the previous car if the next one does not
+ * exist. If the train becomes empty, the handle references no car until a car is inserted.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainCursor {
+    private final TrainLinkedList train;
+    private TrainCarNode node;
+    private boolean closed;
+
+    /**
+     * Constructor creates a TrainCursor on a train.
+     *
+     * @param train
+     * 		The train the handle moves on.
+     *
+     * @param node
+     * 		The node initially referenced by the handle.
+     */
+    TrainCursor(TrainLinkedList train, TrainCarNode node) {
+        this.train = train;
+        this.node = node;
+    }
+
+    /**
+     * Returns the TrainCar currently referenced by the handle.
+     *
+     * @return
+     * 		TrainCar currently referenced by the handle, or null if the train is empty.
+     * */
+    public TrainCar getData() {
+        checkOpen();
+        return (node == null) ? null : node.getCar();
+    }
+
+    /**
+     * Returns the position of the car currently referenced by the handle.
+     *
+     * @return
+     * 		Position of the handle starting from 0 at the head, or -1 if the train is empty.
+     * */
+    public int getPosition() {
+        checkOpen();
+        return train.positionOf(node);
+    }
+
+    /**
+     * Moves the handle to the next car.
+     *
+     * @return
+     * 		True if the handle moved, false if it was already at the tail.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public boolean forward() throws EmptyListException {
+        checkNode();
+        if(node.getNext() == null)
+            return false;
+
+        node = node.getNext();
+        return true;
+    }
+
+    /**
+     * Moves the handle to the previous car.
+     *
+     * @return
+     * 		True if the handle moved, false if it was already at the head.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public boolean backward() throws EmptyListException {
+        checkNode();
+        if(node.getPrev() == null)
+            return false;
+
+        node = node.getPrev();
+        return true;
+    }
+
+    /**
+     * Moves the handle to the car at the given position.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public void seek(int position) throws EmptyListException, IllegalArgumentException {
+        checkNode();
+        node = train.nodeAt(position);
+    }
+
+    /**
+     * Inserts a TrainCar into the train after the car referenced by the handle, and moves the
+     * handle to it. The shared cursor of the train does not move.
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null.
+     * */
+    public void insertAfter(TrainCar newCar) throws IllegalArgumentException {
+        checkOpen();
+        if(newCar == null)
+            throw new IllegalArgumentException("The inserted train car can't be null.");
+
+        node = train.linkAfter(node, newCar);
+    }
+
+    /**
+     * Returns the TrainCar referenced by the handle and then removes it from the train.
+     * The handle now references the next car, or the previous car if the next one does not exist.
+     *
+     * @return
+     * 		The removed TrainCar.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public TrainCar remove() throws EmptyListException {
+        checkNode();
+        TrainCar removedCar = node.getCar();
+
+        train.unlink(node);
+        return removedCar;
+    }
+
+    /**
+     * Replaces the product load of the car referenced by the handle, and updates the totals
+     * of the train.
+     *
+     * @param load
+     * 		New product load of the car, or null to empty the car.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public void setLoad(ProductLoad load) throws EmptyListException {
+        checkNode();
+        train.replaceLoad(node, load);
+    }
+
+    /**
+     * Closes the handle. A closed handle can't be used anymore.
+     */
+    public void close() {
+        if(!closed) {
+            closed = true;
+            node = null;
+            train.closeCursor(this);
+        }
+    }
+
+    /**
+     * Moves the handle if the node it references has been removed from the train.
+     */
+    void relocate() {
+        if(node != null && !train.isLinked(node))
+            node = train.nearestLinked(node);
+    }
+
+    /**
+     * Moves the handle to another node if it references one of the cars between two positions,
+     * which are being moved to another train.
+     *
+     * @param from
+     *      Position of the first car moved.
+     *
+     * @param to
+     *      Position after the last car moved.
+     *
+     * @param replacement
+     *      The node the handle references instead, or null if no car remains.
+     */
+    void relocateRun(int from, int to, TrainCarNode replacement) {
+        if(node == null)
+            return;
+
+        int position = train.positionOf(node);
+        if(position >= from && position < to)
+            node = replacement;
+    }
+
+    /**
+     * Moves the handle to the first car inserted into an empty train.
+     *
+     * @param firstNode
+     *      The node inserted into the train.
+     */
+    void attach(TrainCarNode firstNode) {
+        if(node == null)
+            node = firstNode;
+    }
+
+    /**
+     * Makes sure the handle is still open.
+     *
+     * @throws IllegalStateException
+     *      when the handle has been closed.
+     */
+    private void checkOpen() throws IllegalStateException {
+        if(closed)
+            throw new IllegalStateException("The cursor has been closed.");
+    }
+
+    /**
+     * Makes sure the handle is open and references a car.
+     *
+     * @throws EmptyListException
+     *      when the train is empty.
+     */
+    private void checkNode() throws EmptyListException {
+        checkOpen();
+        if(node == null)
+            throw new EmptyListException("Invalid: No train exist.\n");
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * The TrainFactory class creates an empty train with the requested storage.
+ * <ul>
+ *     <li>"linked": TrainLinkedList, one node object per car (default).</li>
+ *     <li>"compact": CompactTrainList, parallel arrays of primitives.</li>
+ *     <li>"concurrent": TrainLinkedList shared between threads through a ConcurrentTrain.</li>
+ *     <li>"persistent": PersistentTrain, whose changes can be undone and redone.</li>
+ * </ul>
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainFactory {
+    /**
+     * Name of the system property used by TrainManager to choose the storage.
+     */
+    public static final String STORAGE_PROPERTY = "train.storage";
+
+    /**
+     * Storage used when none is requested.
+     */
+    public static final String DEFAULT_STORAGE = "linked";
+
+    /**
+     * Constructor is private since the factory only has static methods.
+     */
+    private TrainFactory() {
+
+    }
+
+    /**
+     * Creates an empty train with the storage named by the train.storage system property, or the
+     * default storage if the property is not set.
+     *
+     * @return
+     * 		An empty train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the property names an unknown storage.
+     */
+    public static Train create() throws IllegalArgumentException {
+        return create(System.getProperty(STORAGE_PROPERTY, DEFAULT_STORAGE));
+    }
+
+    /**
+     * Creates an empty train with the given storage.
+     *
+     * @param storage
+     * 		Name of the storage.
+     *
+     * @return
+     * 		An empty train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the storage is unknown.
+     */
+    public static Train create(String storage) throws IllegalArgumentException {
+        return switch (normalise(storage)) {
+            case "linked" -> new TrainLinkedList();
+            case "compact" -> new CompactTrainList();
+            case "concurrent" -> new ConcurrentTrain(new TrainLinkedList());
+            case "persistent" -> new PersistentTrain();
+            default -> throw new IllegalArgumentException("Unknown train storage: " + storage + ".\n");
+        };
+    }
+
+    /**
+     * Returns the name of a storage the way create() compares it, ignoring case and surrounding
+     * spaces.
+     *
+     * @param storage
+     * 		Name of the storage.
+     *
+     * @return
+     * 		The name in lower case, without surrounding spaces.
+     */
+    public static String normalise(String storage) {
+        return storage.toLowerCase().trim();
+    }
+}
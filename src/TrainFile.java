@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TrainFile class saves a TrainLinkedList to a compact binary file and restores it.
+ * <p>
+ * The file starts with a header (magic number, version, sequence number, number of cars, cursor
+ * position, number of products), followed by the dictionary of product names, each stored once
+ * after its length in bytes, and then by one fixed-width record per car: car length, car weight,
+ * load weight, load value, product id (-1 for an empty car), and a flag byte telling if the load
+ * is dangerous. Lengths are stored in millimetres, weights in kilograms, and values in cents, as
+ * the longs the cars hold them in (see FixedPoint), so saving and loading never round them.
+ * Files are written to a temporary file which then replaces the target, so a crash never leaves a
+ * half-written train behind. Large files are memory-mapped when read. Files of the older versions
+ * can still be read: version 1 stored the name lengths on two bytes, and versions 1 and 2 stored
+ * the quantities as doubles in meters, tons, and dollars.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainFile {
+    private static final int MAGIC = 0x54524E31; // "TRN1"
+    private static final short VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 4 + 4 + 4;
+    private static final int RECORD_SIZE = 8 + 8 + 8 + 8 + 4 + 1;
+    private static final int MAP_THRESHOLD = 1 << 20;
+    private static final byte DANGEROUS = 1;
+
+    /**
+     * Constructor is private since the class only has static methods.
+     */
+    private TrainFile() {
+
+    }
+
+    /**
+     * Saves a train to a file.
+     *
+     * @param train
+     * 		The train being saved.
+     *
+     * @param path
+     * 		The file the train is saved to. It is replaced if it exists.
+     *
+     * @throws IOException
+     * 		when the file can't be written.
+     */
+    public static void save(TrainLinkedList train, Path path) throws IOException {
+        write(encode(train, 0), path);
+    }
+
+    /**
+     * Encodes a train into the file format, tagged with a sequence number.
+     *
+     * @param train
+     * 		The train being encoded.
+     *
+     * @param sequence
+     * 		Sequence number stored in the header, such as the number of journaled changes included
+     * 		in the train.
+     *
+     * @return
+     * 		Buffer holding the whole file, ready to be written.
+     *
+     * @throws IOException
+     * 		when the file would be larger than a buffer can hold, about 58 million cars.
+     */
+    public static ByteBuffer encode(TrainLinkedList train, long sequence) throws IOException {
+        Map<String, Integer> productIds = new HashMap<>();
+        List<byte[]> productNames = new ArrayList<>();
+        long dictionarySize = 0;
+
+        for(TrainCarNode node = train.getHead(); node != null; node = node.getNext()) {
+            ProductLoad load = node.getCar().getProductLoad();
+
+            if(load != null && !productIds.containsKey(load.getName())) {
+                byte[] name = load.getName().getBytes(StandardCharsets.UTF_8);
+                productIds.put(load.getName(), productNames.size());
+                productNames.add(name);
+                dictionarySize += 4 + name.length;
+            }
+        }
+
+        long size = HEADER_SIZE + dictionarySize + (long) train.size() * RECORD_SIZE;
+        if(size > Integer.MAX_VALUE)
+            throw new IOException("Train too large for a train file: " + size + " bytes, at most "
+                    + Integer.MAX_VALUE + ".");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(sequence).putInt(train.size())
+                .putInt(train.getCursorPosition()).putInt(productNames.size());
+
+        for(byte[] name : productNames)
+            buffer.putInt(name.length).put(name);
+
+        for(TrainCarNode node = train.getHead(); node != null; node = node.getNext()) {
+            TrainCar car = node.getCar();
+            ProductLoad load = car.getProductLoad();
+
+            buffer.putLong(car.getCarLengthMillimetres()).putLong(car.getCarWeightKilograms());
+            if(load == null)
+                buffer.putLong(0).putLong(0).putInt(-1).put((byte) 0);
+            else
+                buffer.putLong(load.getWeightKilograms()).putLong(load.getValueCents())
+                        .putInt(productIds.get(load.getName())).put(load.isDangerous() ? DANGEROUS : 0);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes an encoded train to a file, through a temporary file forced to disk which then
+     * replaces the target.
+     *
+     * @param buffer
+     * 		Buffer returned by encode().
+     *
+     * @param path
+     * 		The file the train is saved to. It is replaced if it exists.
+     *
+     * @throws IOException
+     * 		when the file can't be written.
+     */
+    public static void write(ByteBuffer buffer, Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a train from a file. The cursor is restored to the position it had when saved. The
+     * cars are linked first and added to the position index at once at the end, as TrainCsv does.
+     *
+     * @param path
+     * 		The file the train is read from.
+     *
+     * @return
+     * 		The restored train.
+     *
+     * @throws IOException
+     * 		when the file can't be read or is not a valid train file.
+     */
+    public static TrainLinkedList load(Path path) throws IOException {
+        ByteBuffer buffer = read(path);
+        short version = readVersion(buffer);
+        buffer.getLong();
+        int numOfCar = buffer.getInt(), cursorPosition = buffer.getInt(), numOfProduct = buffer.getInt();
+
+        if(numOfCar < 0 || numOfProduct < 0 || cursorPosition < -1 || cursorPosition >= numOfCar)
+            throw new IOException("Invalid train file: corrupted header.");
+
+        try {
+            String[] productNames = new String[numOfProduct];
+            for(int i = 0; i < numOfProduct; i++) {
+                int length = (version == 1) ? Short.toUnsignedInt(buffer.getShort()) : buffer.getInt();
+                if(length < 0 || length > buffer.remaining())
+                    throw new IOException("Invalid train file: corrupted product names.");
+
+                byte[] name = new byte[length];
+                buffer.get(name);
+                productNames[i] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            TrainLinkedList train = new TrainLinkedList();
+            TrainCarNode first = null;
+            for(int i = 0; i < numOfCar; i++) {
+                TrainCarNode node = train.appendUnindexed(readCar(buffer, version, productNames));
+                if(first == null)
+                    first = node;
+            }
+            if(first != null)
+                train.indexFrom(first);
+
+            if(cursorPosition != -1)
+                train.seek(cursorPosition);
+            return train;
+        } catch(BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Invalid train file: truncated or corrupted records.", e);
+        } catch(EmptyListException e) {
+            throw new IOException("Invalid train file: corrupted cursor.", e);
+        }
+    }
+
+    /**
+     * Reads the record of a car.
+     */
+    private static TrainCar readCar(ByteBuffer buffer, short version, String[] productNames) throws IOException {
+        long carLength, carWeight, loadWeight, loadValue;
+
+        if(version < 3) {
+            carLength = FixedPoint.toUnits(buffer.getDouble(), FixedPoint.MILLI);
+            carWeight = FixedPoint.toUnits(buffer.getDouble(), FixedPoint.MILLI);
+            loadWeight = FixedPoint.toUnits(buffer.getDouble(), FixedPoint.MILLI);
+            loadValue = FixedPoint.toUnits(buffer.getDouble(), FixedPoint.CENTI);
+        } else {
+            carLength = buffer.getLong();
+            carWeight = buffer.getLong();
+            loadWeight = buffer.getLong();
+            loadValue = buffer.getLong();
+        }
+        int productId = buffer.getInt();
+        byte flags = buffer.get();
+
+        if(productId >= productNames.length || productId < -1)
+            throw new IOException("Invalid train file: unknown product id " + productId + ".");
+        if(carLength < 0 || carWeight < 0 || loadWeight < 0 || loadValue < 0)
+            throw new IOException("Invalid train file: negative quantity.");
+
+        TrainCar car = new TrainCar();
+        car.setUnits(carLength, carWeight);
+        if(productId != -1) {
+            ProductLoad load = new ProductLoad();
+            load.setUnits(ProductCatalog.get(productNames[productId], (flags & DANGEROUS) != 0), loadWeight,
+                    loadValue);
+            car.setProductLoad(load);
+        }
+        return car;
+    }
+
+    /**
+     * Returns the sequence number stored in the header of a file.
+     *
+     * @param path
+     * 		The file being read.
+     *
+     * @return
+     * 		The sequence number given to encode().
+     *
+     * @throws IOException
+     * 		when the file can't be read or is not a valid train file.
+     */
+    public static long readSequence(Path path) throws IOException {
+        ByteBuffer buffer = read(path);
+        readVersion(buffer);
+        return buffer.getLong();
+    }
+
+    /**
+     * Reads a whole file, memory-mapping it if it is large.
+     */
+    private static ByteBuffer read(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if(size >= MAP_THRESHOLD)
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer) < 0)
+                    throw new IOException("Invalid train file: unexpected end of file.");
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Checks the magic number of a file and returns its version. The sequence number follows.
+     */
+    private static short readVersion(ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            throw new IOException("Invalid train file: missing header.");
+
+        short version = buffer.getShort();
+        if(version < 1 || version > VERSION)
+            throw new IOException("Unsupported train file version " + version + ".");
+
+        return version;
+    }
+}
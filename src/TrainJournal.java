@@ -0,0 +1,485 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The TrainJournal class keeps a TrainLinkedList safe across crashes by appending every change to
+ * an append-only journal file, instead of rewriting the whole train after each change.
+ * <p>
+ * Records are gathered in memory and written with a single fsync once a batch is full, or every
+ * few milliseconds by a background thread, so a crash loses at most the last batch. When the
+ * journal grows too large, the train is encoded into a snapshot and appends move on to a new
+ * journal file (a new generation); the snapshot is written in the background, after which the older
+ * journal files are deleted. On startup, the snapshot is loaded and the journal files written since
+ * are replayed, stopping at the first torn or corrupted record.
+ * <p>
+ * Each record is framed by its length and a CRC32 checksum, followed by an operation code:
+ * 'I' (insert after cursor), 'R' (remove cursor), 'L' (set cursor load), 'D' (remove dangerous
+ * cars), or 'C' (move the cursor to a position). Every journal file starts with a 'V' record
+ * holding the version of its format. Since version 2, lengths, weights, and values are recorded in
+ * millimetres, kilograms, and cents, as the longs the cars hold them in (see FixedPoint); files
+ * without a 'V' record are of version 1, which recorded them as doubles, and are still replayed.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainJournal implements Closeable {
+    private static final String SNAPSHOT = "train.snapshot";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final int BATCH_RECORDS = 256;
+    private static final int BATCH_BYTES = 1 << 16;
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final long COMPACT_THRESHOLD = 8 << 20;
+
+    private static final short VERSION = 2;
+    private static final byte INSERT = 'I', REMOVE = 'R', LOAD = 'L', REMOVE_DANGEROUS = 'D', CURSOR = 'C',
+            FORMAT = 'V';
+
+    private final Path directory;
+    private final ScheduledExecutorService background;
+    private final CRC32 checksum = new CRC32();
+
+    private TrainLinkedList train;
+    private FileChannel channel;
+    private long generation, journalSize;
+    private ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES);
+    private int batchedRecords;
+    private volatile IOException failure;
+
+    /**
+     * Constructor creates a TrainJournal for a directory. Use open() to create one.
+     */
+    private TrainJournal(Path directory) {
+        this.directory = directory;
+        this.background = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "train-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the journal kept in a directory and rebuilds the train from it, creating the directory
+     * if it does not exist.
+     *
+     * @param directory
+     * 		Directory holding the snapshot and the journal files.
+     *
+     * @return
+     * 		The opened journal. The rebuilt train is returned by getTrain().
+     *
+     * @throws IOException
+     * 		when the directory can't be used or the snapshot is not a valid train file.
+     */
+    public static TrainJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        TrainJournal journal = new TrainJournal(directory);
+
+        try {
+            journal.recover();
+        } catch(IOException e) {
+            journal.background.shutdownNow();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Accessor. Returns the train kept by the journal.
+     *
+     * @return
+     * 		The train rebuilt when the journal was opened, or given to reset().
+     */
+    public synchronized TrainLinkedList getTrain() {
+        return train;
+    }
+
+    /**
+     * Records a TrainCar inserted after the cursor.
+     *
+     * @param car
+     * 		The inserted car. Its product load, if any, is recorded by logLoad().
+     *
+     * @throws IOException
+     * 		when an earlier write of the journal failed.
+     */
+    public synchronized void logInsert(TrainCar car) throws IOException {
+        ByteBuffer record = beginRecord(1 + 16);
+        record.put(INSERT).putLong(car.getCarLengthMillimetres()).putLong(car.getCarWeightKilograms());
+        endRecord();
+    }
+
+    /**
+     * Records the removal of the car referenced by the cursor.
+     *
+     * @throws IOException
+     * 		when an earlier write of the journal failed.
+     */
+    public synchronized void logRemove() throws IOException {
+        beginRecord(1).put(REMOVE);
+        endRecord();
+    }
+
+    /**
+     * Records the product load put on the car referenced by the cursor.
+     *
+     * @param load
+     * 		The new product load.
+     *
+     * @throws IOException
+     * 		when an earlier write of the journal failed.
+     */
+    public synchronized void logLoad(ProductLoad load) throws IOException {
+        byte[] name = load.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = beginRecord(1 + 4 + name.length + 16 + 1);
+
+        record.put(LOAD).putInt(name.length).put(name).putLong(load.getWeightKilograms())
+                .putLong(load.getValueCents()).put((byte) (load.isDangerous() ? 1 : 0));
+        endRecord();
+    }
+
+    /**
+     * Records the removal of all dangerous cars.
+     *
+     * @throws IOException
+     * 		when an earlier write of the journal failed.
+     */
+    public synchronized void logRemoveDangerous() throws IOException {
+        beginRecord(1).put(REMOVE_DANGEROUS);
+        endRecord();
+    }
+
+    /**
+     * Records the position of the cursor after it moved.
+     *
+     * @param position
+     * 		New position of the cursor.
+     *
+     * @throws IOException
+     * 		when an earlier write of the journal failed.
+     */
+    public synchronized void logCursor(int position) throws IOException {
+        beginRecord(1 + 4).put(CURSOR).putInt(position);
+        endRecord();
+    }
+
+    /**
+     * Replaces the train kept by the journal, such as when a train is opened from a file, and
+     * snapshots it right away.
+     *
+     * @param train
+     * 		The new train.
+     *
+     * @throws IOException
+     * 		when the journal can't be written.
+     */
+    public synchronized void reset(TrainLinkedList train) throws IOException {
+        this.train = train;
+        compact();
+    }
+
+    /**
+     * Writes every batched record to the journal file and forces it to disk.
+     *
+     * @throws IOException
+     * 		when the journal can't be written.
+     */
+    public synchronized void flush() throws IOException {
+        checkFailure();
+        if(batch.position() == 0)
+            return;
+
+        batch.flip();
+        while(batch.hasRemaining())
+            channel.write(batch);
+        channel.force(false);
+
+        batch.clear();
+        batchedRecords = 0;
+    }
+
+    /**
+     * Snapshots the train and moves appends to a new journal file. The snapshot is written to disk
+     * in the background, and the older journal files are deleted once it is.
+     *
+     * @throws IOException
+     * 		when the journal can't be written.
+     */
+    public synchronized void compact() throws IOException {
+        flush();
+
+        ByteBuffer snapshot = TrainFile.encode(train, generation + 1);
+        startGeneration(generation + 1);
+
+        long snapshotGeneration = generation;
+        background.execute(() -> {
+            try {
+                TrainFile.write(snapshot, directory.resolve(SNAPSHOT));
+                for(long older : journalGenerations()) {
+                    if(older < snapshotGeneration)
+                        Files.deleteIfExists(journalPath(older));
+                }
+            } catch(IOException e) {
+                failure = e;
+            }
+        });
+    }
+
+    /**
+     * Flushes the batched records, waits for a snapshot being written, and closes the journal.
+     *
+     * @throws IOException
+     * 		when the journal can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            flush();
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized(this) {
+            channel.close();
+            checkFailure();
+        }
+    }
+
+    /**
+     * Loads the snapshot, replays the journal files written since, and starts a new journal file.
+     */
+    private synchronized void recover() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        long snapshotGeneration = 0;
+
+        if(Files.exists(snapshot)) {
+            train = TrainFile.load(snapshot);
+            snapshotGeneration = TrainFile.readSequence(snapshot);
+        } else
+            train = new TrainLinkedList();
+
+        long lastGeneration = snapshotGeneration;
+        int replayed = 0;
+        for(long older : journalGenerations()) {
+            if(older < snapshotGeneration)
+                Files.deleteIfExists(journalPath(older));
+            else {
+                replayed += replay(journalPath(older));
+                lastGeneration = Math.max(lastGeneration, older);
+            }
+        }
+
+        generation = lastGeneration;
+        startGeneration(lastGeneration + 1);
+        background.scheduleWithFixedDelay(this::flushInBackground, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+
+        if(replayed > 0)
+            compact();
+    }
+
+    /**
+     * Applies the records of a journal file to the train, stopping at the first incomplete or
+     * corrupted record, which is the tail of a write interrupted by a crash.
+     *
+     * @return
+     *      Number of records applied.
+     */
+    private int replay(Path path) throws IOException {
+        ByteBuffer buffer;
+        try(FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        }
+
+        int applied = 0;
+        short version = 1;
+        while(buffer.remaining() >= 8) {
+            int length = buffer.getInt(), expected = buffer.getInt();
+            if(length < 1 || length > buffer.remaining())
+                break;
+
+            ByteBuffer record = buffer.slice().limit(length);
+            checksum.reset();
+            checksum.update(record.duplicate());
+            if((int) checksum.getValue() != expected)
+                break;
+
+            if(record.get(0) == FORMAT)
+                version = record.position(1).getShort();
+            else
+                apply(record, version);
+            buffer.position(buffer.position() + length);
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Applies a single record of a journal file of the given version to the train.
+     */
+    private void apply(ByteBuffer record, short version) throws IOException {
+        try {
+            switch(record.get()) {
+                case INSERT -> {
+                    if(version == 1) {
+                        double length = record.getDouble(), weight = record.getDouble();
+                        train.insertAfterCursor(new TrainCar(weight, length));
+                    } else {
+                        long length = record.getLong(), weight = record.getLong();
+                        if(length < 0 || weight < 0)
+                            throw new IOException("Invalid journal: negative quantity.");
+
+                        TrainCar car = new TrainCar();
+                        car.setUnits(length, weight);
+                        train.insertAfterCursor(car);
+                    }
+                }
+                case REMOVE -> train.removeCursor();
+                case LOAD -> {
+                    byte[] name = new byte[record.getInt()];
+                    record.get(name);
+                    String productName = new String(name, StandardCharsets.UTF_8);
+
+                    if(version == 1)
+                        train.setCursorLoad(new ProductLoad(productName, record.getDouble(), record.getDouble(),
+                                record.get() != 0));
+                    else {
+                        long weight = record.getLong(), value = record.getLong();
+                        if(weight < 0 || value < 0)
+                            throw new IOException("Invalid journal: negative quantity.");
+
+                        ProductLoad load = new ProductLoad();
+                        load.setUnits(ProductCatalog.get(productName, record.get() != 0), weight, value);
+                        train.setCursorLoad(load);
+                    }
+                }
+                case REMOVE_DANGEROUS -> train.removeDangerousCars();
+                case CURSOR -> train.seek(record.getInt());
+                default -> throw new IOException("Invalid journal: unknown record.");
+            }
+        } catch(EmptyListException | IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("Invalid journal: record doesn't match the train.", e);
+        }
+    }
+
+    /**
+     * Makes room in the batch for a record and writes its frame, leaving the payload to the caller.
+     */
+    private ByteBuffer beginRecord(int payloadSize) throws IOException {
+        checkFailure();
+        if(batch.remaining() < 8 + payloadSize) {
+            flush();
+            if(batch.capacity() < 8 + payloadSize)
+                batch = ByteBuffer.allocate(8 + payloadSize);
+        }
+
+        batch.mark();
+        batch.putInt(payloadSize).putInt(0);
+        return batch;
+    }
+
+    /**
+     * Fills in the checksum of the record just written, and flushes or compacts the journal if needed.
+     */
+    private void endRecord() throws IOException {
+        int end = batch.position();
+        batch.reset();
+        int start = batch.position();
+        int payloadSize = batch.getInt(start);
+
+        checksum.reset();
+        checksum.update(batch.duplicate().position(start + 8).limit(end));
+        batch.putInt(start + 4, (int) checksum.getValue());
+        batch.position(end);
+
+        journalSize += 8 + payloadSize;
+        if(++batchedRecords >= BATCH_RECORDS)
+            flush();
+        if(journalSize >= COMPACT_THRESHOLD)
+            compact();
+    }
+
+    /**
+     * Closes the current journal file and starts appending to the file of a new generation, whose
+     * first record is the version of its format.
+     */
+    private void startGeneration(long newGeneration) throws IOException {
+        if(channel != null)
+            channel.close();
+
+        generation = newGeneration;
+        journalSize = 0;
+        channel = FileChannel.open(journalPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+
+        beginRecord(1 + 2).put(FORMAT).putShort(VERSION);
+        endRecord();
+    }
+
+    /**
+     * Flushes the batch from the background thread, keeping the error for the next caller.
+     */
+    private synchronized void flushInBackground() {
+        try {
+            if(channel.isOpen())
+                flush();
+        } catch(IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Throws the error of an earlier background write, if any.
+     */
+    private void checkFailure() throws IOException {
+        IOException error = failure;
+        if(error != null)
+            throw new IOException("Journal write failed: " + error.getMessage(), error);
+    }
+
+    /**
+     * Returns the generations of the journal files in the directory, in increasing order.
+     */
+    private List<Long> journalGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for(Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(JOURNAL_PREFIX.length(),
+                            name.length() - JOURNAL_SUFFIX.length())));
+                } catch(NumberFormatException e) {
+                    // not a journal file
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Returns the path of the journal file of a generation.
+     */
+    private Path journalPath(long journalGeneration) {
+        return directory.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+}
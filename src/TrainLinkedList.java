@@ -1,3 +1,21 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * The TrainLinkedList class implements a Double-Linked List ADT, which creates a
  * Double-Linked list representing the train and contains methods that enable user to
@@ -5,13 +23,33 @@
  *
  * @author Zhen Wei Liao
  **/
-public class TrainLinkedList {
+public class TrainLinkedList implements Train, Iterable<TrainCar> {
+    // number of cars below which aggregate() stays on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+    // number of cars below which a spliterator is not split anymore
+    private static final int MIN_SPLIT = 1 << 10;
+
     private TrainCarNode head;
     private TrainCarNode tail;
     private TrainCarNode cursor;
 
     private int numOfTrainCar = 0, numOfDangerousCar = 0;
-    private double totalLength = 0, totalValue = 0, totalWeight = 0;
+    private long totalLength = 0, totalValue = 0, totalWeight = 0;  // millimetres, cents, kilograms
+
+    // keyed by name, since a name counts its dangerous and safe loads together; the names are the
+    // ones of the shared Products, so equals() matches them on identity without comparing chars
+    private Map<String, ProductTotal> productIndex = new HashMap<>();
+    private final CarIndex index = new CarIndex();
+    private final List<TrainCursor> openCursors = new ArrayList<>();
+
+    // copies of the cars, kept up to date while the last snapshot taken is still referenced
+    private TrainVersion shadow;
+    private WeakReference<TrainSnapshot> lastSnapshot;
+
+    // bumped by every change of the cars, their loads, or the cursor
+    private long version = 0;
+    private String summaryCache;
+    private long summaryVersion = -1;
 
     /**
      * Constructor creates an empty TrainLinkedList object
@@ -51,10 +89,63 @@ public class TrainLinkedList {
      * <p>
      * Post conditions:
      * 		Car is now referenced by the cursor.
+     * 		The totals of the train count the new car instead of the replaced one.
      * */
     public void setCursorData(TrainCar car) {
-        if(cursor != null)
+        if(cursor != null) {
+            TrainCar old = cursor.getCar();
+            removeProductLoad(old);
+            totalLength += car.getCarLengthMillimetres() - old.getCarLengthMillimetres();
+            totalWeight += car.getCarWeightKilograms() - old.getCarWeightKilograms();
+
             cursor.setCar(car);
+            index.refresh(cursor);
+            if(keepsShadow())
+                shadow = shadow.set(index.positionOf(cursor), TrainVersion.copy(car));
+            addTotal(car);
+            version++;
+        }
+    }
+
+    /**
+     * Replaces the product load of the TrainCar currently referenced by the cursor, and updates
+     * the totals of the train.
+     *
+     * @param load
+     * 		New product load of the car, or null to empty the car.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public void setCursorLoad(ProductLoad load) throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Please insert a train car first.\n");
+
+        replaceLoad(cursor, load);
+    }
+
+    /**
+     * Opens a new cursor handle on the train, positioned on the car currently referenced by the
+     * shared cursor. Each handle moves independently of the shared cursor and of the other handles.
+     * A handle must be closed once it is no longer used.
+     *
+     * @return
+     * 		A new TrainCursor on this train.
+     * */
+    public TrainCursor openCursor() {
+        TrainCursor handle = new TrainCursor(this, cursor);
+        openCursors.add(handle);
+        return handle;
+    }
+
+    /**
+     * Stops adjusting a cursor handle when cars are removed.
+     *
+     * @param handle
+     *      The TrainCursor being closed.
+     */
+    void closeCursor(TrainCursor handle) {
+        openCursors.remove(handle);
     }
 
     /**
@@ -66,15 +157,19 @@ public class TrainLinkedList {
      * <p>
      * Post conditions:
      * 		The cursor has been moved to the next TrainCarNode, or has remained at the tail.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the tail.
      * */
-    public void cursorForward() throws EmptyListException {
+    public boolean cursorForward() throws EmptyListException {
         if(isEmpty())
             throw new EmptyListException("Invalid: No train exist.\n");
-        else if(cursor != tail) {
-            cursor = cursor.getNext();
-            System.out.println("Cursor moved forward.\n");
-        } else
-            System.out.println("No next car; cannot move cursor forward.\n");
+        else if(cursor == tail)
+            return false;
+
+        cursor = cursor.getNext();
+        version++;
+        return true;
     }
 
     /**
@@ -86,15 +181,19 @@ public class TrainLinkedList {
      * <p>
      * Post conditions:
      * 		The cursor has been moved to the previous TrainCarNode, or has remained at the head.
+     *
+     * @return
+     * 		True if the cursor moved, false if it is at the head.
      * */
-    public void cursorBackward() throws EmptyListException {
+    public boolean cursorBackward() throws EmptyListException {
         if(isEmpty())
             throw new EmptyListException("Invalid. No train exist.\n");
-        else if(cursor != head) {
-            cursor = cursor.getPrev();
-            System.out.println("Cursor moved backward.\n");
-        } else
-            System.out.println("No previous car, cannot move cursor backward.\n");
+        else if(cursor == head)
+            return false;
+
+        cursor = cursor.getPrev();
+        version++;
+        return true;
     }
 
     /**
@@ -116,73 +215,583 @@ public class TrainLinkedList {
      * 		when the new TrainCar is null.
      * */
     public void insertAfterCursor(TrainCar newCar) throws IllegalArgumentException {
-        TrainCarNode newCarNode = new TrainCarNode(newCar);
+        if(newCar == null)
+            throw new IllegalArgumentException("The inserted train car can't be null.");
+
+        cursor = linkAfter(cursor, newCar);
+    }
+
+    /**
+     * Moves the cursor to the TrainCarNode at the given position.
+     * <p>
+     * Preconditions:
+     * 		The list is not empty and the position is between 0 and size() - 1.
+     * <p>
+     * Post conditions:
+     * 		The cursor now references the car at the given position.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public void seek(int position) throws EmptyListException, IllegalArgumentException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+
+        cursor = nodeAt(position);
+        version++;
+    }
+
+    /**
+     * Returns the TrainCar at the given position without moving the cursor.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @return
+     * 		TrainCar at the given position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainCar get(int position) throws IllegalArgumentException {
+        return nodeAt(position).getCar();
+    }
 
+    /**
+     * Inserts a TrainCar into the train so that it ends up at the given position.
+     * <p>
+     * Post conditions:
+     * 		The new TrainCar is at the given position, and the order of all other cars has been
+     * 		preserved.
+     * 		The cursor now points to the inserted car.
+     *
+     * @param position
+     * 		Position of the inserted car, from 0 (new head) to size() (new tail).
+     *
+     * @param newCar
+     * 		The new TrainCar that is inserted into the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the new TrainCar is null or the position is out of range.
+     * */
+    public void insertAt(int position, TrainCar newCar) throws IllegalArgumentException {
         if(newCar == null)
             throw new IllegalArgumentException("The inserted train car can't be null.");
+        if(position < 0 || position > numOfTrainCar)
+            throw new IllegalArgumentException("Invalid. Position must be between 0 and " + numOfTrainCar + ".\n");
+
+        cursor = linkAfter((position == 0) ? null : index.nodeAt(position - 1), newCar);
+    }
+
+    /**
+     * Returns the position of the car currently referenced by the cursor.
+     *
+     * @return
+     * 		Position of the cursor starting from 0 at the head, or -1 if the train is empty.
+     * */
+    public int getCursorPosition() {
+        return positionOf(cursor);
+    }
+
+    /**
+     * Returns the first node of the train.
+     *
+     * @return
+     *      The head of the train, or null if the train is empty.
+     */
+    TrainCarNode getHead() {
+        return head;
+    }
+
+    /**
+     * Returns the node currently referenced by the cursor.
+     *
+     * @return
+     *      The node of the cursor, or null if the train is empty.
+     */
+    TrainCarNode getCursorNode() {
+        return cursor;
+    }
+
+    /**
+     * Returns the position of a node.
+     *
+     * @param node
+     *      The node being looked up, or null.
+     *
+     * @return
+     *      Position of the node starting from 0 at the head, or -1 if the node is null.
+     */
+    int positionOf(TrainCarNode node) {
+        return (node == null) ? -1 : index.positionOf(node);
+    }
+
+    /**
+     * Returns the node at the given position.
+     *
+     * @param position
+     *      Position of the node, starting from 0 at the head of the train.
+     *
+     * @return
+     *      TrainCarNode at the given position.
+     *
+     * @throws IllegalArgumentException
+     *      when the position is out of range.
+     */
+    TrainCarNode nodeAt(int position) throws IllegalArgumentException {
+        if(position < 0 || position >= numOfTrainCar)
+            throw new IllegalArgumentException("Invalid. Position must be between 0 and " + (numOfTrainCar - 1) + ".\n");
+
+        return index.nodeAt(position);
+    }
+
+    /**
+     * Links a new node holding the car after the given node, or at the head of the train
+     * if the given node is null. The shared cursor and the cursor handles that reference no car,
+     * which only happens when the train was empty, now reference the new node.
+     *
+     * @param prev
+     *      Node the new car is linked after, or null to link it at the head.
+     *
+     * @param newCar
+     *      The new TrainCar that is inserted into the train.
+     *
+     * @return
+     *      The new node.
+     */
+    TrainCarNode linkAfter(TrainCarNode prev, TrainCar newCar) {
+        TrainCarNode newCarNode = new TrainCarNode(newCar);
+        TrainCarNode next = (prev == null) ? head : prev.getNext();
+
+        newCarNode.setPrev(prev);
+        newCarNode.setNext(next);
 
-        if(isEmpty()) {
+        if(prev == null)
             head = newCarNode;
+        else
+            prev.setNext(newCarNode);
+
+        if(next == null)
             tail = newCarNode;
-        } else {
-            if(cursor != tail && cursor.getNext() != null) {
-                newCarNode.setNext(cursor.getNext());
-                cursor.getNext().setPrev(newCarNode);
-            }
-            newCarNode.setPrev(cursor);
-            cursor.setNext(newCarNode);
+        else
+            next.setPrev(newCarNode);
+
+        int position = (prev == null) ? 0 : index.positionOf(prev) + 1;
+        index.insertAt(position, newCarNode);
+        if(keepsShadow())
+            shadow = shadow.insertAt(position, TrainVersion.copy(newCar));
+
+        if(cursor == null) {
+            cursor = newCarNode;
+            for(TrainCursor handle : openCursors)
+                handle.attach(newCarNode);
         }
-        cursor = newCarNode;
 
-        if(cursor.getNext() == null)
-            tail = cursor;
+        numOfTrainCar++;
+        totalLength += newCar.getCarLengthMillimetres();
+        totalWeight += newCar.getCarWeightKilograms();
+        addTotal(newCar);
+        version++;
+        return newCarNode;
+    }
+
+    /**
+     * Links a new node holding the car at the tail of the train and updates the totals, without
+     * adding it to the position index. This is the fast path of bulk imports, which link all
+     * their cars first and then index them at once with indexFrom().
+     *
+     * @param newCar
+     *      The new TrainCar that is appended to the train.
+     *
+     * @return
+     *      The new node.
+     */
+    TrainCarNode appendUnindexed(TrainCar newCar) {
+        TrainCarNode newCarNode = new TrainCarNode(newCar);
+
+        newCarNode.setPrev(tail);
+        if(tail == null)
+            head = newCarNode;
+        else
+            tail.setNext(newCarNode);
+        tail = newCarNode;
+        if(keepsShadow())
+            shadow = shadow.insertAt(numOfTrainCar, TrainVersion.copy(newCar));
+
+        if(cursor == null) {
+            cursor = newCarNode;
+            for(TrainCursor handle : openCursors)
+                handle.attach(newCarNode);
+        }
 
         numOfTrainCar++;
-        totalLength += newCar.getCarLength();
-        totalWeight += newCar.getCarWeight();
+        totalLength += newCar.getCarLengthMillimetres();
+        totalWeight += newCar.getCarWeightKilograms();
+        addTotal(newCar);
+        version++;
+        return newCarNode;
+    }
 
+    /**
+     * Adds the nodes linked by appendUnindexed() to the position index.
+     *
+     * @param first
+     *      First node returned by appendUnindexed(); the nodes from it to the tail are indexed.
+     */
+    void indexFrom(TrainCarNode first) {
+        index.appendAll(first);
     }
 
     /**
-     * Set the current list to an empty linked list.
+     * Splits the train after the cursor: the cars after the cursor are taken off this train and
+     * returned as a new train, whose cursor references its head. Splitting off k of n cars takes
+     * O(log n + min(k, n - k)) time, see cut().
+     * <p>
+     * Post conditions:
+     * 		The car referenced by the cursor is the tail of this train.
+     * 		The order of the cars of both trains is preserved.
+     *
+     * @return
+     * 		A new TrainLinkedList holding the cars that were after the cursor, empty if the cursor
+     * 		was at the tail.
+     *
+     * @throws EmptyListException
+     * 		when the train is empty.
+     * */
+    public TrainLinkedList splitAfterCursor() throws EmptyListException {
+        if(isEmpty())
+            throw new EmptyListException("Invalid: No train exist.\n");
+        if(cursor == tail)
+            return new TrainLinkedList();
+
+        return cut(cursor.getNext(), numOfTrainCar - index.positionOf(cursor) - 1);
+    }
+
+    /**
+     * Couples another train at the tail of this one: all its cars are moved after the tail, and
+     * the other train is left empty. The nodes are relinked, the totals of the other train added to
+     * these ones, and the product totals of the train with fewer products merged into the other's,
+     * so coupling costs O(log n) plus the smaller number of products, however many cars either
+     * train has. The cursor stays where it was, or references the car the cursor of the other
+     * train referenced if this train was empty.
+     *
+     * @param other
+     * 		The train being coupled. It must have no open cursor handle.
+     *
+     * @throws IllegalArgumentException
+     * 		when the other train is null, is this train, or has an open cursor handle.
+     * */
+    public void couple(TrainLinkedList other) throws IllegalArgumentException {
+        if(other == null || other == this)
+            throw new IllegalArgumentException("Invalid. A train can only be coupled with another train.\n");
+        if(!other.openCursors.isEmpty())
+            throw new IllegalArgumentException("Invalid. Close the cursor handles of the coupled train first.\n");
+
+        pasteAfter(tail, other);
+    }
+
+    /**
+     * Takes a run of consecutive cars off the train and returns them as a new train, whose cursor
+     * references the first of them. The nodes are relinked rather than copied, and the totals
+     * of the run are read from the position index it is split off, so they cost O(log n). The
+     * product totals are split by counting again the loads of the smaller of the two parts, the
+     * run or the rest of the train, so cutting k cars off a train of n cars takes
+     * O(log n + min(k, n - k)) time: splitting a train in half walks half of its cars. The shared
+     * cursor and the cursor handles referencing a moved car now reference the car after the run,
+     * or the car before it if there is none after it.
+     *
+     * @param first
+     *      Node of the first car moved.
+     *
+     * @param count
+     *      Number of cars moved.
+     *
+     * @return
+     *      A new TrainLinkedList holding the moved cars.
+     *
+     * @throws IllegalArgumentException
+     *      when the run doesn't fit between the first node and the tail.
      */
-    public void emptyList(){
-        head = null;
-        tail = null;
-        cursor = null;
+    TrainLinkedList cut(TrainCarNode first, int count) throws IllegalArgumentException {
+        int from = index.positionOf(first);
+        if(count < 1 || count > numOfTrainCar - from)
+            throw new IllegalArgumentException("Invalid. Number of cars must be between 1 and "
+                    + (numOfTrainCar - from) + ".\n");
+
+        int to = from + count;
+        TrainCarNode last = index.nodeAt(to - 1), before = first.getPrev(), after = last.getNext();
+        TrainCarNode replacement = (after != null) ? after : before;
+
+        int cursorPosition = index.positionOf(cursor);
+        if(cursorPosition >= from && cursorPosition < to)
+            cursor = replacement;
+        for(TrainCursor handle : openCursors)
+            handle.relocateRun(from, to, replacement);
+
+        splice(before, after);
+        first.setPrev(null);
+        last.setNext(null);
+
+        CarIndex run = index.removeRange(from, to);
+        TrainLinkedList cars = new TrainLinkedList();
+        if(keepsShadow()) {
+            cars.shadow = shadow.headTo(to).tailFrom(from);
+            cars.lastSnapshot = lastSnapshot;
+            shadow = shadow.headTo(from).concat(shadow.tailFrom(to));
+        }
+        cars.head = first;
+        cars.tail = last;
+        cars.cursor = first;
+        cars.numOfTrainCar = count;
+        cars.numOfDangerousCar = run.dangerousCount();
+        cars.totalLength = run.totalLength();
+        cars.totalWeight = run.totalWeight();
+        cars.totalValue = run.totalValue();
+        cars.index.insertAll(0, run);
+
+        numOfTrainCar -= count;
+        numOfDangerousCar -= cars.numOfDangerousCar;
+        totalLength -= cars.totalLength;
+        totalWeight -= cars.totalWeight;
+        totalValue -= cars.totalValue;
+
+        // the chains are apart now, so walking from the head only walks the cars left
+        boolean runIsSmaller = count <= numOfTrainCar;
+        Map<String, ProductTotal> walked = new HashMap<>();
+        for(TrainCarNode node = runIsSmaller ? first : head; node != null; node = node.getNext()) {
+            ProductLoad load = node.getCar().getProductLoad();
+
+            if(load != null) {
+                unindexLoad(load);
+                walked.computeIfAbsent(load.getName(), key -> new ProductTotal()).add(load);
+            }
+        }
+        if(runIsSmaller)
+            cars.productIndex = walked;
+        else {
+            cars.productIndex = productIndex;
+            productIndex = walked;
+        }
+
+        version++;
+        return cars;
+    }
+
+    /**
+     * Links every car of another train after the cursor, and moves the cursor to the last of them.
+     * See pasteAfter() for the cost.
+     *
+     * @param cars
+     *      The train whose cars are moved. It must have no open cursor handle.
+     */
+    void pasteAfterCursor(TrainLinkedList cars) {
+        TrainCarNode last = cars.tail;
+
+        pasteAfter(cursor, cars);
+        if(last != null) {
+            cursor = last;
+            version++;
+        }
     }
 
     /**
-     * Remove the head of the linked list.
+     * Links every car of another train after the given node, or at the head of this train if the
+     * given node is null. The nodes are relinked rather than copied: the totals of the other train
+     * are added to these ones, and the product totals of the train with fewer products are merged
+     * into the other's, so the cost depends on the smaller number of products, plus O(log n) for
+     * the position index. The cursor stays where it was, or references the car the cursor of the
+     * other train referenced if this train was empty. The other train is left empty. While this
+     * train keeps its snapshot version up to date, the cars of another train that doesn't are
+     * copied as well.
+     *
+     * @param prev
+     *      Node the cars are linked after, or null to link them at the head.
+     *
+     * @param cars
+     *      The train whose cars are moved. It must have no open cursor handle.
+     */
+    void pasteAfter(TrainCarNode prev, TrainLinkedList cars) {
+        if(cars.isEmpty())
+            return;
+
+        int position = (prev == null) ? 0 : index.positionOf(prev) + 1;
+        if(keepsShadow()) {
+            TrainVersion moved = cars.keepsShadow() ? cars.shadow : TrainVersion.copyOf(cars, cars.numOfTrainCar);
+            shadow = shadow.headTo(position).concat(moved).concat(shadow.tailFrom(position));
+        }
+        if(cars.shadow != null)
+            cars.shadow = TrainVersion.empty();
+
+        TrainCarNode first = cars.head, last = cars.tail;
+        TrainCarNode next = (prev == null) ? head : prev.getNext();
+
+        first.setPrev(prev);
+        last.setNext(next);
+        if(prev == null)
+            head = first;
+        else
+            prev.setNext(first);
+        if(next == null)
+            tail = last;
+        else
+            next.setPrev(last);
+
+        index.insertAll(position, cars.index);
+
+        if(cursor == null) {
+            cursor = cars.cursor;
+            for(TrainCursor handle : openCursors)
+                handle.attach(cursor);
+        }
+
+        numOfTrainCar += cars.numOfTrainCar;
+        numOfDangerousCar += cars.numOfDangerousCar;
+        totalLength += cars.totalLength;
+        totalWeight += cars.totalWeight;
+        totalValue += cars.totalValue;
+
+        Map<String, ProductTotal> merged = cars.productIndex;
+        if(merged.size() > productIndex.size()) {
+            merged = productIndex;
+            productIndex = cars.productIndex;
+        }
+        merged.forEach((name, total) -> productIndex.merge(name, total, ProductTotal::merge));
+        cars.productIndex = new HashMap<>();
+
+        cars.head = null;
+        cars.tail = null;
+        cars.cursor = null;
+        cars.numOfTrainCar = 0;
+        cars.numOfDangerousCar = 0;
+        cars.totalLength = 0;
+        cars.totalWeight = 0;
+        cars.totalValue = 0;
+        cars.version++;
+        version++;
+    }
+
+    /**
+     * Removes a node from the train and updates the totals. The shared cursor and the cursor
+     * handles referencing the node now reference the next car, or the previous car if the next
+     * one does not exist.
      *
      * @param node
-     *      Current head.
+     *      The node being removed.
      */
-    public void removeHead(TrainCarNode node){
-        node.getNext().setPrev(null);
-        head = node.getNext();
+    void unlink(TrainCarNode node) {
+        splice(node.getPrev(), node.getNext());
+        if(keepsShadow())
+            shadow = shadow.removeAt(index.positionOf(node));
+        index.remove(node);
+        subtractTotal(node.getCar());
+        relocateCursors();
+        version++;
     }
 
     /**
-     * Remove the tail of the linked list.
+     * Replaces the product load of the car in a node, and updates the totals of the train.
      *
      * @param node
-     *      Current tail.
+     *      The node of the car being loaded.
+     *
+     * @param load
+     *      New product load of the car, or null to empty the car.
+     */
+    void replaceLoad(TrainCarNode node, ProductLoad load) {
+        TrainCar car = node.getCar();
+
+        removeProductLoad(car);
+        car.setProductLoad(load);
+        index.refresh(node);
+        if(keepsShadow())
+            shadow = shadow.set(index.positionOf(node), TrainVersion.copy(car));
+        addTotal(car);
+        node.setManifestRow(null);
+        version++;
+    }
+
+    /**
+     * Tells if a node is still linked in the train. Removed nodes are dropped from the position
+     * index, but keep their links to their neighbours at the time of removal.
+     *
+     * @param node
+     *      The node being checked.
+     *
+     * @return
+     *      True if the node is on the train, false otherwise.
      */
-    public void removeTail(TrainCarNode node){
-        node.getPrev().setNext(null);
-        tail = node.getPrev();
+    boolean isLinked(TrainCarNode node) {
+        return node.getIndexEntry() != null;
     }
 
     /**
-     * Remove the node from the linked list.
+     * Returns the closest node still on the train after a removed node, or before it if there
+     * is none after it. The links kept by the removed nodes lead back to the train.
      *
      * @param node
-     *      Current node.
+     *      A node removed from the train.
+     *
+     * @return
+     *      The closest node on the train, or null if the train is empty.
+     */
+    TrainCarNode nearestLinked(TrainCarNode node) {
+        TrainCarNode search = node.getNext();
+        while(search != null && !isLinked(search))
+            search = search.getNext();
+
+        if(search != null)
+            return search;
+
+        search = node.getPrev();
+        while(search != null && !isLinked(search))
+            search = search.getPrev();
+
+        return search;
+    }
+
+    /**
+     * Moves the shared cursor and the cursor handles that reference a removed node.
      */
-    public void removeNode(TrainCarNode node){
-        node.getPrev().setNext(node.getNext());
-        node.getNext().setPrev(node.getPrev());
+    private void relocateCursors() {
+        if(cursor != null && !isLinked(cursor))
+            cursor = nearestLinked(cursor);
+
+        for(TrainCursor handle : openCursors)
+            handle.relocate();
+    }
+
+    /**
+     * Set the current list to an empty linked list.
+     * <p>
+     * Post conditions:
+     * 		The train has no car, and its totals and product totals are 0.
+     * 		The cursor and the cursor handles reference no car.
+     */
+    public void emptyList(){
+        for(TrainCursor handle : openCursors)
+            handle.relocateRun(0, numOfTrainCar, null);
+        for(TrainCarNode node = head; node != null; node = node.getNext())
+            node.setIndexEntry(null);
+
+        head = null;
+        tail = null;
+        cursor = null;
+        numOfTrainCar = 0;
+        numOfDangerousCar = 0;
+        totalLength = 0;
+        totalWeight = 0;
+        totalValue = 0;
+        productIndex.clear();
+        index.clear();
+        if(keepsShadow())
+            shadow = TrainVersion.empty();
+        version++;
     }
 
     /**
@@ -202,62 +811,53 @@ public class TrainLinkedList {
             throw new EmptyListException("Invalid: No train exist.\n");
 
         TrainCar removedCar = cursor.getCar();
+        unlink(cursor);
 
-        if(cursor == head && cursor == tail)
-            emptyList();
-        else if(cursor == tail) {
-            removeTail(cursor);
-            cursor = tail;
-        }
-        else if(cursor == head) {
-            removeHead(cursor);
-            cursor = tail;
-        }
-        else {
-            removeNode(cursor);
-            cursor = cursor.getNext();
-        }
-
-        subtractTotal(removedCar);
         return removedCar;
     }
 
     /**
      * Increase the total weight, value, and number of dangerous cars of the train whenever a
-     * product load is added to a TrainCar.
+     * product load is added to a TrainCar. The caller keeps the position index and the snapshot
+     * version up to date.
      *
      * @param car
      * 		The TrainCar that has been inserted a product load.
      * */
-    public void addTotal(TrainCar car) {
+    private void addTotal(TrainCar car) {
 
         ProductLoad load = car.getProductLoad();
 
         if(load != null) {
-            totalValue += load.getValue();
-            totalWeight += load.getWeight();
+            totalValue += load.getValueCents();
+            totalWeight += load.getWeightKilograms();
 
             if(load.isDangerous())
                 numOfDangerousCar++;
+
+            productIndex.computeIfAbsent(load.getName(), key -> new ProductTotal()).add(load);
         }
 
+        version++;
     }
 
     /**
      * Decrease the total weight, value, and number of dangerous cars of the train whenever a
-     * TrainCar is removed from the train.
+     * TrainCar is removed from the train. The caller unlinks the node, and drops it from the
+     * position index and the snapshot version.
      *
      * @param car
      * 		The TrainCar that has been removed from the train.
      * */
-    public void subtractTotal(TrainCar car) {
+    private void subtractTotal(TrainCar car) {
         numOfTrainCar -= 1;
-        totalLength -= car.getCarLength();
+        totalLength -= car.getCarLengthMillimetres();
 
         if (!car.isEmpty())
             removeProductLoad(car);
 
-        totalWeight -= car.getCarWeight();
+        totalWeight -= car.getCarWeightKilograms();
+        version++;
     }
 
     /**
@@ -267,15 +867,34 @@ public class TrainLinkedList {
      * @param car
      * 		The TrainCar being modified.
      */
-    public void removeProductLoad(TrainCar car) {
+    private void removeProductLoad(TrainCar car) {
         ProductLoad load = car.getProductLoad();
 
         if(load != null) {
-            totalWeight -= load.getWeight();
-            totalValue -= load.getValue();
+            totalWeight -= load.getWeightKilograms();
+            totalValue -= load.getValueCents();
 
             if(load.isDangerous())
                 numOfDangerousCar--;
+
+            unindexLoad(load);
+        }
+        version++;
+    }
+
+    /**
+     * Removes a product load from the running totals of its product.
+     *
+     * @param load
+     * 		The product load taken off the train.
+     */
+    private void unindexLoad(ProductLoad load) {
+        ProductTotal product = productIndex.get(load.getName());
+
+        if(product != null) {
+            product.subtract(load);
+            if(product.isEmpty())
+                productIndex.remove(load.getName());
         }
     }
 
@@ -296,7 +915,7 @@ public class TrainLinkedList {
      * 		Total length of the train.
      * */
     public double getLength() {
-        return totalLength;
+        return FixedPoint.toDouble(totalLength, FixedPoint.MILLI);
     }
 
     /**
@@ -306,7 +925,7 @@ public class TrainLinkedList {
      * 		Sum of each TrainCar values.
      * */
     public double getValue() {
-        return totalValue;
+        return FixedPoint.toDouble(totalValue, FixedPoint.CENTI);
     }
 
     /**
@@ -316,7 +935,7 @@ public class TrainLinkedList {
      * 		Sum each TrainCar weights plus the sum of the ProductLoad carried by that car.
      * */
     public double getWeight() {
-        return totalWeight;
+        return FixedPoint.toDouble(totalWeight, FixedPoint.MILLI);
     }
 
     /**
@@ -330,87 +949,65 @@ public class TrainLinkedList {
     }
 
     /**
-     * Prints a neatly formatted table of a specific product load.
+     * Accessor. Returns the number of TrainCar carrying a dangerous product.
      *
-     * @param name
-     * 		Name of the product
-     *
-     * @param weight
-     * 		Weight of the product
-     *
-     * @param value
-     * 		value of the product
-     *
-     * 	@param isDangerous
-     * 		Whether the product is dangerous or not
+     * @return
+     * 		Number of dangerous TrainCar on the train.
      * */
-    public static void printLoad(String name, double weight, double value, boolean isDangerous) {
-        String table = "\n" + String.format("%-4s%-10s%-13s%-12s%-12s",
-                " ", "Name", "Weight (t)", "Value ($)", "Dangerous") + "\n" + "=".repeat(51) +
-                "\n" + String.format("%-4s%-10s%-13.1f%-18s%-3s", " ", name, weight,
-                String.format("%,.2f", value), (isDangerous)? "Yes" : "No") + "\n";
-
-        System.out.println(table);
+    public int getNumOfDangerousCar() {
+        return numOfDangerousCar;
     }
 
     /**
-     * Prints the results obtained from findProduct().
-     *
-     * @param name
-     *      Name of the product.
+     * Returns the totals of the cars between two positions, such as the weight of cars 200 to 450
+     * for a brake calculation. The totals are summed from the position index, whose entries keep
+     * the totals of the cars below them up to date as cars are inserted, removed, or loaded, so a
+     * range of any length takes O(log n) time.
      *
-     * @param numOfCar
-     *      Number of TrainCars that carries the desired product.
+     * @param from
+     * 		Position of the first car counted, starting from 0 at the head of the train.
      *
-     * @param sumOfWeight
-     *      Sum of all product load weights.
+     * @param to
+     * 		Position after the last car counted, up to size().
      *
-     * @param sumOfValue
-     *      Sum of all product load values.
+     * @return
+     * 		The number, length, weight, value, and number of dangerous cars of the range.
      *
-     * @param isDangerous
-     *      Determine if the product load is dangerous or not.
-     */
-    private static void printProductFound(String name, int numOfCar, double sumOfWeight, double sumOfValue, boolean isDangerous){
-        if(numOfCar == 0)
-            System.out.println("No record of " + name + " on board train.\n");
-        else {
-            System.out.println("The following products were found on " + numOfCar + " cars:");
+     * @throws IllegalArgumentException
+     * 		when the positions are out of range or the first is after the second.
+     * */
+    public RangeTotal rangeTotal(int from, int to) throws IllegalArgumentException {
+        if(from < 0 || to > numOfTrainCar || from > to)
+            throw new IllegalArgumentException("Invalid. Range must be between 0 and " + numOfTrainCar + ".\n");
 
-            printLoad(name, sumOfWeight, sumOfValue, isDangerous);
-        }
+        return index.totalOf(from, to);
+    }
+
+    /**
+     * Returns the totals of the cars behind the cursor, from the car after it to the tail, in
+     * O(log n) time. See rangeTotal().
+     *
+     * @return
+     * 		The number, length, weight, value, and number of dangerous cars behind the cursor, or
+     * 		nothing if the train is empty.
+     * */
+    public RangeTotal totalBehindCursor() {
+        return rangeTotal(getCursorPosition() + 1, numOfTrainCar);
     }
 
     /**
-     * Search through the entire list to find the product load that has
-     * the same name as the desired name. For each found product, their weights and
-     * values are sum together. Then, the method will print a single ProductLoad
-     * record to the console.
+     * Looks up the running totals of the product that has the same name as the desired name.
+     * The totals are kept up to date whenever a product load is added to or removed from the
+     * train, so the lookup takes constant time no matter how long the train is.
      *
      * @param name
      * 		Name of the ProductLoad to find on the train.
+     *
+     * @return
+     * 		The number of cars carrying the product and the sums of their weights and values.
      * */
-    public void findProduct(String name) {
-        double sumOfWeight = 0, sumOfValue = 0;
-        boolean isDangerous = false;
-        int numOfCar = 0;
-
-        TrainCarNode search = head;
-        while(search != null) {
-
-            ProductLoad load = search.getCar().getProductLoad();
-
-            if(load != null && name.equals(load.getName())) {
-                numOfCar++;
-                sumOfWeight += load.getWeight();
-                sumOfValue += load.getValue();
-                if(load.isDangerous())
-                    isDangerous = true;
-            }
-            search = search.getNext();
-        }
-
-        printProductFound(name, numOfCar, sumOfWeight, sumOfValue, isDangerous);
+    public ProductSearchResult findProduct(String name) {
+        return ProductSearchResult.of(name, productIndex.get(name));
     }
 
     /**
@@ -426,86 +1023,358 @@ public class TrainLinkedList {
         if(isEmpty())
             throw new EmptyListException("Invalid. No train exist.\n");
 
-        TrainCarNode search = head;
-        while(search != null) {
-            if(search.getCar().getProductLoad().isDangerous()) {
-                if(search == cursor)
-                    removeCursor();
-                else{
-                    if(search == tail)
-                        removeTail(search);
-                    else if(search == head)
-                        removeHead(search);
-                    else
-                        removeNode(search);
-                    subtractTotal(search.getCar());
+        removeIf(car -> !car.isEmpty() && car.getProductLoad().isDangerous());
+    }
+
+    /**
+     * Removes every TrainCar matching the filter from the train in a single pass, while maintaining
+     * the order of the remaining TrainCar objects. Each run of adjacent matching cars is unlinked
+     * as a unit, and the totals of the train are updated once with the sum of all removed cars.
+     * Every car is tested before the train is changed, so a filter that throws leaves the train
+     * as it was.
+     * <p>
+     * Post conditions:
+     * 		All matching cars have been removed from this train.
+     * 		The order of all remaining cars is maintained.
+     * 		If the car referenced by the cursor was removed, the cursor now references the next
+     * 		remaining car, or the previous remaining car if there is no next one.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to remove.
+     *
+     * @return
+     * 		Number of TrainCar objects removed from the train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter is null.
+     * */
+    public int removeIf(Predicate<TrainCar> filter) throws IllegalArgumentException {
+        if(filter == null)
+            throw new IllegalArgumentException("The filter can't be null.");
+
+        BitSet matching = new BitSet(numOfTrainCar);
+        int position = 0;
+        for(TrainCarNode node = head; node != null; node = node.getNext(), position++) {
+            if(filter.test(node.getCar()))
+                matching.set(position);
+        }
+        if(matching.isEmpty())
+            return 0;
+
+        int removedCars = 0, removedDangerous = 0;
+        long removedLength = 0, removedWeight = 0, removedValue = 0;
+
+        TrainCarNode node = head, lastKept = null;
+        boolean inRun = false;
+
+        // the runs of kept cars are concatenated into the new snapshot version
+        TrainVersion kept = keepsShadow() ? TrainVersion.empty() : null;
+        int keptFrom = 0;
+        position = 0;
+
+        while(node != null) {
+            TrainCarNode next = node.getNext();
+            TrainCar car = node.getCar();
+
+            if(matching.get(position)) {
+                if(!inRun && kept != null)
+                    kept = kept.concat(shadow.headTo(position).tailFrom(keptFrom));
+
+                removedCars++;
+                removedLength += car.getCarLengthMillimetres();
+                removedWeight += car.getCarWeightKilograms();
+
+                ProductLoad load = car.getProductLoad();
+                if(load != null) {
+                    removedWeight += load.getWeightKilograms();
+                    removedValue += load.getValueCents();
+                    if(load.isDangerous())
+                        removedDangerous++;
+                    unindexLoad(load);
+                }
+
+                index.remove(node);
+                inRun = true;
+            } else {
+                if(inRun) {
+                    splice(lastKept, node);
+                    keptFrom = position;
                 }
+
+                lastKept = node;
+                inRun = false;
             }
-            search = search.getNext();
+            node = next;
+            position++;
         }
+
+        if(inRun)
+            splice(lastKept, null);
+        if(kept != null)
+            shadow = inRun ? kept : kept.concat(shadow.tailFrom(keptFrom));
+        relocateCursors();
+        version++;
+
+        numOfTrainCar -= removedCars;
+        numOfDangerousCar -= removedDangerous;
+        totalLength -= removedLength;
+        totalWeight -= removedWeight;
+        totalValue -= removedValue;
+
+        return removedCars;
     }
 
+    /**
+     * Links two remaining nodes together, dropping every node between them from the train.
+     *
+     * @param before
+     *      Last remaining node before the removed run, or null if the run starts at the head.
+     *
+     * @param after
+     *      First remaining node after the removed run, or null if the run ends at the tail.
+     */
+    private void splice(TrainCarNode before, TrainCarNode after) {
+        if(before == null)
+            head = after;
+        else
+            before.setNext(after);
 
+        if(after == null)
+            tail = before;
+        else
+            after.setPrev(before);
+    }
 
     /**
-     * Prints a neatly formatted table of the car number, car length, car weight,
-     * load name, load weight, load value, and load dangerousness for all the car on the
-     * train. If the car is empty, the load would be "Empty", the load weight and value
-     * would be 0, and the dangerousness of the car would be "No".
+     * Collects the TrainCar objects matching the filter, from the head to the tail. Large trains
+     * are collected by a parallel stream(), whose segments are collected on the common
+     * ForkJoinPool and combined in order. Trains of up to a few thousand cars are collected on the
+     * calling thread.
+     * <p>
+     * For example, aggregate(car -> car.getCarWeight() > 50, ProductTotal.collector()) rolls up the
+     * loads of the heavy cars, and aggregate(filter, Collectors.counting()) counts cars.
+     * <p>
+     * Preconditions:
+     * 		The train is not modified while the cars are collected.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to collect. It may be called from several threads.
+     *
+     * @param collector
+     * 		Collector receiving the matching cars.
+     *
+     * @return
+     * 		The result of the collector.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter or the collector is null.
      * */
-    public void printManifest() {
-        StringBuilder header = new StringBuilder();
-        header.append(String.format("%-4s%-36s%-34s", " ", "CAR:", "LOAD:")).append("\n").append(
-                    String.format("%-6s%-6s%-14s%-13s%-5s%-10s%-13s%-12s%-9s", " ", "Num", "Length (m)",
-                    " Weight (t)", "|", "Name", "Weight (t)", "Value ($)",
-                    "Dangerous")).append("\n").append(" ".repeat(4)).append(
-                    "=".repeat(35)).append("+").append("=".repeat(51)).append("\n");
+    public <A, R> R aggregate(Predicate<? super TrainCar> filter, Collector<? super TrainCar, A, R> collector)
+            throws IllegalArgumentException {
+        if(filter == null || collector == null)
+            throw new IllegalArgumentException("The filter and the collector can't be null.");
 
+        boolean parallel = numOfTrainCar > PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
 
-        if(isEmpty())
-            System.out.println(header);
-        else
-            printManifestRows(head, header);
+        return StreamSupport.stream(spliterator(), parallel).filter(filter).collect(collector);
     }
 
     /**
-     * Helper of the printManifest method. Prints the rows of the table.
+     * Returns an Iterator over the TrainCar objects of the train, from the head to the tail.
+     * Its remove() method removes the last returned car the same way as removeCursor() does.
      *
-     * @param node
-     *      Node pointer being used to traverse through the train or linked list.
+     * @return
+     * 		Iterator over the cars of the train.
+     * */
+    @Override
+    public Iterator<TrainCar> iterator() {
+        return new Iterator<>() {
+            private TrainCarNode next = head, last;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public TrainCar next() {
+                if(next == null)
+                    throw new NoSuchElementException();
+
+                last = next;
+                next = next.getNext();
+                return last.getCar();
+            }
+
+            @Override
+            public void remove() {
+                if(last == null || !isLinked(last))
+                    throw new IllegalStateException();
+
+                unlink(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Returns a Spliterator over the TrainCar objects of the train, from the head to the tail.
+     * It knows its exact size, and splits in halves at positions found through the position index.
+     *
+     * @return
+     * 		Spliterator over the cars of the train.
+     * */
+    @Override
+    public Spliterator<TrainCar> spliterator() {
+        return new CarSpliterator(head, 0, numOfTrainCar);
+    }
+
+    /**
+     * Returns a sequential Stream of the TrainCar objects of the train, from the head to the tail.
+     * <p>
+     * Preconditions:
+     * 		The train is not modified while the stream is used.
      *
-     * @param table
-     *      A neatly formatted table.
+     * @return
+     * 		Stream of the cars of the train.
+     * */
+    public Stream<TrainCar> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel Stream of the TrainCar objects of the train, from the head to the tail.
+     * <p>
+     * Preconditions:
+     * 		The train is not modified while the stream is used.
      *
+     * @return
+     * 		Parallel stream of the cars of the train.
+     * */
+    public Stream<TrainCar> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * The CarSpliterator class walks the cars between two positions. Its first node is looked up
+     * in the position index only when it is needed, so a split costs O(log n) at most.
      */
-    public void printManifestRows(TrainCarNode node, StringBuilder table){
-        int carNum = 1;
+    private class CarSpliterator implements Spliterator<TrainCar> {
+        private TrainCarNode node;
+        private int position;
+        private final int end;
+
+        /**
+         * Constructor creates a spliterator over the cars from position to end, excluded.
+         *
+         * @param node
+         *      Node at the position, or null if it has not been looked up yet.
+         */
+        private CarSpliterator(TrainCarNode node, int position, int end) {
+            this.node = node;
+            this.position = position;
+            this.end = end;
+        }
 
-        while(node != null) {
-            String arrow = " ", productName = "Empty", dangerousness = "No";
-            double loadWeight = 0, loadValue = 0;
+        @Override
+        public boolean tryAdvance(Consumer<? super TrainCar> action) {
+            if(position >= end)
+                return false;
 
-            if(cursor == node)
-                arrow = "->";
+            TrainCarNode current = first();
+            node = current.getNext();
+            position++;
+            action.accept(current.getCar());
+            return true;
+        }
 
-            TrainCar car = node.getCar();
-            ProductLoad load = car.getProductLoad();
+        @Override
+        public void forEachRemaining(Consumer<? super TrainCar> action) {
+            if(position >= end)
+                return;
 
-            if(load != null) {
-                productName = load.getName();
-                dangerousness = load.isDangerous() ? "Yes" : "No";
-                loadWeight = load.getWeight();
-                loadValue = load.getValue();
+            TrainCarNode current = first();
+            int remaining = end - position;
+            node = null;
+            position = end;
+
+            for(int i = 0; i < remaining; i++) {
+                action.accept(current.getCar());
+                current = current.getNext();
             }
+        }
+
+        @Override
+        public Spliterator<TrainCar> trySplit() {
+            if(end - position < MIN_SPLIT)
+                return null;
+
+            int middle = (position + end) >>> 1;
+            Spliterator<TrainCar> prefix = new CarSpliterator(node, position, middle);
+            node = null;
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+
+        /**
+         * Returns the node at the current position, looking it up if needed.
+         */
+        private TrainCarNode first() {
+            if(node == null)
+                node = index.nodeAt(position);
+            return node;
+        }
+    }
 
-            table.append(String.format("%-6s%-6d%-15.1f%-12.1f%-5s%-10s%-13.1f%-18.2f%-3s", arrow,
-                    carNum, car.getCarLength(), car.getCarWeight(), "|", productName, loadWeight,
-                    loadValue, dangerousness)).append("\n");
+    /**
+     * Writes a neatly formatted table of the car number, car length, car weight,
+     * load name, load weight, load value, and load dangerousness for all the car on the
+     * train. If the car is empty, the load would be "Empty", the load weight and value
+     * would be 0, and the dangerousness of the car would be "No". The rows are written one by
+     * one through a ManifestWriter, so the table is never held in memory as a whole. The car and
+     * load columns of every row are kept on its node, so writing the manifest again only formats
+     * the rows of the cars that changed since.
+     *
+     * @param out
+     *      Writer receiving the table.
+     *
+     * @throws IOException
+     *      when the table can't be written.
+     * */
+    public void writeManifest(Writer out) throws IOException {
+        ManifestWriter manifest = new ManifestWriter(out);
+        manifest.writeHeader();
 
+        int carNum = 1;
+        for(TrainCarNode node = head; node != null; node = node.getNext()) {
+            String rowEnd = node.getManifestRow();
+
+            if(rowEnd == null) {
+                TrainCar car = node.getCar();
+                ProductLoad load = car.getProductLoad();
+
+                if(load == null)
+                    rowEnd = ManifestWriter.formatRowEnd(car.getCarLength(), car.getCarWeight(), "Empty", 0, 0,
+                            false);
+                else
+                    rowEnd = ManifestWriter.formatRowEnd(car.getCarLength(), car.getCarWeight(), load.getName(),
+                            load.getWeight(), load.getValue(), load.isDangerous());
+                node.setManifestRow(rowEnd);
+            }
+            manifest.writeRow(cursor == node, carNum, rowEnd);
             carNum++;
-            node = node.getNext();
         }
-        System.out.println(table);
+        manifest.finish();
     }
 
     /**
@@ -527,11 +1396,92 @@ public class TrainLinkedList {
      * */
     @Override
     public String toString() {
-        return "Train: " + this.size() + " cars, "
-                + String.format("%.1f", this.getLength()) + " meters, "
-                + String.format("%.1f", this.getWeight()) + " tons, "
-                + "$" + String.format("%,.2f", this.getValue()) + " value, "
-                + ((isDangerous())? "DANGEROUS." : "Not Dangerous.") + "\n\n";
+        if(summaryVersion != version) {
+            summaryCache = summary(this.size(), this.getLength(), this.getWeight(), this.getValue(), isDangerous());
+            summaryVersion = version;
+        }
+        return summaryCache;
+    }
+
+    /**
+     * Returns the version of the train, which changes whenever a car is inserted, removed, or
+     * loaded, or the cursor moves, so that a display can tell if it needs to be refreshed.
+     *
+     * @return
+     * 		The version of the train.
+     * */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Takes a point-in-time snapshot of the train, which can be read from any thread while the
+     * train keeps changing, without ever seeing those changes.
+     * <p>
+     * The first snapshot copies the cars into an immutable TrainVersion, in O(n) time. From then
+     * on, the train keeps that version up to date alongside its nodes, so the following snapshots
+     * take constant time. Every change of the train then costs O(log n) more time, and copies the
+     * path to the changed car. This lasts as long as the last snapshot taken is referenced: once
+     * the garbage collector has reclaimed it, the train drops its version at the next change, and
+     * the next snapshot copies the cars again.
+     * <p>
+     * Preconditions:
+     * 		The snapshot is taken by the thread changing the train, or under the same lock.
+     *
+     * @return
+     * 		A snapshot of the train as it is now.
+     * */
+    public TrainSnapshot snapshot() {
+        if(shadow == null)
+            shadow = TrainVersion.copyOf(this, numOfTrainCar);
+
+        TrainSnapshot snapshot = new TrainSnapshot(shadow, getCursorPosition(), version);
+        lastSnapshot = new WeakReference<>(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Tells if the snapshot version has to follow a change of the train. The version is dropped
+     * once the last snapshot taken has been reclaimed, since no reader is taking snapshots anymore.
+     *
+     * @return
+     *      True if the train keeps a snapshot version, false otherwise.
+     */
+    private boolean keepsShadow() {
+        if(shadow != null && lastSnapshot.get() == null) {
+            shadow = null;
+            lastSnapshot = null;
+        }
+        return shadow != null;
+    }
+
+    /**
+     * Returns the one line summary of a train used by toString().
+     *
+     * @param size
+     *      Number of cars on the train.
+     *
+     * @param length
+     *      Total length of the train.
+     *
+     * @param weight
+     *      Total weight of the train.
+     *
+     * @param value
+     *      Total value of the train.
+     *
+     * @param isDangerous
+     *      Whether the train carries a dangerous product.
+     *
+     * @return
+     *      String representation of the train.
+     */
+    static String summary(int size, double length, double weight, double value, boolean isDangerous) {
+        return "Train: " + size + " cars, "
+                + String.format("%.1f", length) + " meters, "
+                + String.format("%.1f", weight) + " tons, "
+                + "$" + String.format("%,.2f", value) + " value, "
+                + ((isDangerous)? "DANGEROUS." : "Not Dangerous.") + "\n\n";
     }
 
 
@@ -4,11 +4,23 @@
  *
  * @author Zhen Wei Liao
  **/
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
+import javax.management.JMException;
 
 public class TrainManager {
 
-    private static TrainLinkedList train;
+    private static Train train;
+    private static TrainJournal journal;
+    private static TrainMetrics metrics;
+    private static TrainRenderer renderer = new TrainRenderer(System.out);
     private static Scanner input;
     private static boolean run;
 
@@ -53,15 +65,30 @@ public class TrainManager {
      * Enable user to add a TrainCar to the list.
      *
      */
-    private static void insertTrain(){
+    private static void insertTrain() throws IOException {
         double length, weight;
 
         length = Double.parseDouble(userInput("Enter car length in meters: "));
 
         weight = Double.parseDouble(userInput("Enter car weight in tons: "));
 
+        insertCar(length, weight);
+    }
+
+    /**
+     * Adds a TrainCar with the given length and weight after the cursor.
+     *
+     * @param length
+     *      Length of the car in meters.
+     *
+     * @param weight
+     *      Weight of the car in tons.
+     */
+    private static void insertCar(double length, double weight) throws IOException {
         TrainCar car = new TrainCar(weight, length);
         train.insertAfterCursor(car);
+        if(journal != null)
+            journal.logInsert(car);
 
         System.out.println("New train car (" + car.getCarLength() + " meters, " + car.getCarWeight()
                 + " tons) connected to the train.\n");
@@ -70,16 +97,33 @@ public class TrainManager {
     /**
      * Enable user to remove a TrainCar from the list.
      */
-    private static void removeTrain() throws EmptyListException {
+    private static void removeTrain() throws EmptyListException, IOException {
         TrainCar car = train.removeCursor();
-        ProductLoad load = car.getProductLoad();
+        if(journal != null)
+            journal.logRemove();
         System.out.println("Car successfully unlinked. The following load has been removed from the train: ");
 
-        if(load == null)
-            TrainLinkedList.printLoad("Empty", 0.0, 0.00, false);
-        else
-            TrainLinkedList.printLoad(load.getName(), load.getWeight(), load.getValue(), load.isDangerous());
+        renderer.load(car.getProductLoad());
+    }
 
+    /**
+     * Moves the cursor forward or backward, and records its new position in the journal.
+     *
+     * @param forward
+     *      True to move the cursor forward, false to move it backward.
+     */
+    private static void moveCursor(boolean forward) throws EmptyListException, IOException {
+        if(forward) {
+            boolean moved = train.cursorForward();
+            renderer.cursorForward(moved);
+            if(moved)
+                journalCursor();
+        } else {
+            boolean moved = train.cursorBackward();
+            renderer.cursorBackward(moved);
+            if(moved)
+                journalCursor();
+        }
     }
 
     /**
@@ -102,19 +146,185 @@ public class TrainManager {
      * Enable user to modify the ProductLoad of the current TrainCar.
      *
      */
-    private static void setLoad() throws IllegalArgumentException, EmptyListException, InputMisMatchException {
+    private static void setLoad() throws IllegalArgumentException, EmptyListException, InputMisMatchException,
+            IOException {
         if(train.getCursorData() == null)
             throw new EmptyListException("Please insert a train car first.\n");
         else {
-            ProductLoad load = createLoad();
+            loadCar(createLoad());
+        }
+    }
+
+    /**
+     * Puts the given ProductLoad on the current TrainCar.
+     *
+     * @param load
+     *      The new ProductLoad of the car.
+     */
+    private static void loadCar(ProductLoad load) throws EmptyListException, IOException {
+        System.out.println(load.getWeight() + " tons of " + load.getName() + " added to the current car.\n");
+
+        train.setCursorLoad(load);
+        if(journal != null)
+            journal.logLoad(load);
+    }
+
+    /**
+     * Enable user to remove all dangerous cars from the list.
+     */
+    private static void removeDangerous() throws EmptyListException, IOException {
+        train.removeDangerousCars();
+        if(journal != null)
+            journal.logRemoveDangerous();
+
+        System.out.println("Dangerous cars successfully removed from the train.\n");
+    }
+
+    /**
+     * Records the position of the cursor in the journal after it moved.
+     */
+    private static void journalCursor() throws IOException {
+        if(journal != null)
+            journal.logCursor(train.getCursorPosition());
+    }
+
+    /**
+     * Enable user to save the train to a file.
+     *
+     * @param fileName
+     *      Name of the file.
+     */
+    private static void saveTrain(String fileName) throws IOException {
+        TrainLinkedList linked = linkedTrain("Saving");
+
+        Path path = Path.of(fileName);
+        TrainFile.save(linked, path);
+        System.out.println("Train saved to " + path + ".\n");
+    }
+
+    /**
+     * Enable user to replace the train with one saved to a file.
+     *
+     * @param fileName
+     *      Name of the file.
+     */
+    private static void openTrain(String fileName) throws IOException {
+        linkedTrain("Opening");
 
-            System.out.println(load.getWeight() + " tons of " + load.getName() + " added to the current car.\n");
+        Path path = Path.of(fileName);
+        TrainLinkedList opened = TrainFile.load(path);
+        train = meter(opened);
+        if(journal != null)
+            journal.reset(opened);
+        System.out.println("Train opened from " + path + ".\n");
+    }
+
+    /**
+     * Enable user to append the cars of a CSV file to the end of the train.
+     *
+     * @param fileName
+     *      Name of the CSV file.
+     */
+    private static void importTrain(String fileName) throws IOException {
+        TrainLinkedList linked = linkedTrain("Importing");
 
-            TrainCar car = train.getCursorData();
-            train.removeProductLoad(car);
-            car.setProductLoad(load);
-            train.addTotal(car);
+        Path path = Path.of(fileName);
+        int count;
+        try {
+            count = TrainCsv.read(path, linked);
+        } finally {
+            if(journal != null)
+                journal.reset(linked);
         }
+        System.out.println(count + " cars imported from " + path + ".\n");
+    }
+
+    /**
+     * Enable user to export the train to a CSV file.
+     *
+     * @param fileName
+     *      Name of the CSV file.
+     */
+    private static void exportTrain(String fileName) throws IOException {
+        TrainLinkedList linked = linkedTrain("Exporting");
+
+        Path path = Path.of(fileName);
+        TrainCsv.write(linked, path);
+        System.out.println("Train exported to " + path + ".\n");
+    }
+
+    /**
+     * Returns the TrainLinkedList storing the train, behind its MeteredTrain if it is metered.
+     *
+     * @param action
+     *      Name of the action needing the linked storage, such as "Saving".
+     *
+     * @return
+     *      The TrainLinkedList of the train.
+     *
+     * @throws IllegalArgumentException
+     *      when the train is not stored in a TrainLinkedList.
+     */
+    private static TrainLinkedList linkedTrain(String action) throws IllegalArgumentException {
+        Train storage = storage();
+        if(!(storage instanceof TrainLinkedList))
+            throw new IllegalArgumentException(action + " is only supported with the linked storage.\n");
+
+        return (TrainLinkedList) storage;
+    }
+
+    /**
+     * Returns the PersistentTrain storing the train, behind its MeteredTrain if it is metered.
+     *
+     * @param action
+     *      Name of the action needing the persistent storage, such as "Undo".
+     *
+     * @return
+     *      The PersistentTrain of the train.
+     *
+     * @throws IllegalArgumentException
+     *      when the train is not stored in a PersistentTrain.
+     */
+    private static PersistentTrain persistentTrain(String action) throws IllegalArgumentException {
+        Train storage = storage();
+        if(!(storage instanceof PersistentTrain))
+            throw new IllegalArgumentException(action + " is only supported with the persistent storage.\n");
+
+        return (PersistentTrain) storage;
+    }
+
+    /**
+     * Returns the train storing the cars, behind its MeteredTrain if it is metered.
+     *
+     * @return
+     *      The storage of the train.
+     */
+    private static Train storage() {
+        return (train instanceof MeteredTrain) ? ((MeteredTrain) train).getTrain() : train;
+    }
+
+    /**
+     * Wraps a train in a MeteredTrain if the metrics are enabled.
+     *
+     * @param storage
+     *      The train.
+     *
+     * @return
+     *      The metered train, or the train itself if the metrics are disabled.
+     */
+    private static Train meter(Train storage) {
+        return (metrics == null) ? storage : new MeteredTrain(storage, metrics);
+    }
+
+    /**
+     * Enable user to print the metrics of the train operations.
+     */
+    private static void printMetrics() throws IllegalArgumentException {
+        if(metrics == null)
+            throw new IllegalArgumentException("Metrics are disabled. Run with -D" + TrainMetrics.METRICS_PROPERTY
+                    + "=true to enable them.\n");
+
+        renderer.metrics(metrics);
     }
 
     /**
@@ -124,44 +334,240 @@ public class TrainManager {
         System.out.print("Program terminating successfully...");
         run = false;
         input.close();
+        closeJournal();
+    }
+
+    /**
+     * Flushes and closes the journal, if any.
+     */
+    private static void closeJournal() {
+        if(journal != null) {
+            try {
+                journal.close();
+            } catch(IOException e) {
+                System.out.println("File error: " + e.getMessage() + "\n");
+            }
+        }
     }
 
     /**
      * Ask for user input and perform operation based on the input command.
      *
      */
-    private static void commands() throws EmptyListException, InputMisMatchException {
+    private static void commands() throws EmptyListException, InputMisMatchException, IOException {
         switch (input.nextLine().toUpperCase().trim()) {
-            case "F" -> train.cursorForward();
-            case "B" -> train.cursorBackward();
+            case "F" -> moveCursor(true);
+            case "B" -> moveCursor(false);
             case "I" -> insertTrain();
             case "R" -> removeTrain();
             case "L" -> setLoad();
             case "S" -> {
                 System.out.print("Enter product name: ");
-                train.findProduct(input.nextLine());
-            }
-            case "T" -> System.out.print(train);
-            case "M" -> train.printManifest();
-            case "D" -> {
-                train.removeDangerousCars();
-                System.out.println("Dangerous cars successfully removed from the train.\n");
+                renderer.productFound(train.findProduct(input.nextLine()));
             }
+            case "T" -> renderer.summary(train);
+            case "M" -> renderer.manifest(train);
+            case "D" -> removeDangerous();
+            case "W" -> saveTrain(userInput("Enter file name: "));
+            case "O" -> openTrain(userInput("Enter file name: "));
+            case "C" -> importTrain(userInput("Enter file name: "));
+            case "X" -> exportTrain(userInput("Enter file name: "));
+            case "P" -> printMetrics();
+            case "U" -> renderer.undo(persistentTrain("Undo").undo());
+            case "Y" -> renderer.redo(persistentTrain("Redo").redo());
             case "Q" -> terminate();
             default -> System.out.println("Please only enter the following choices: \n");
         }
     }
 
+    /**
+     * Runs the commands of a command file, one full command per line, without menu or prompts.
+     * The commands are the letters of the menu followed by their fields, for example
+     * "I 12.5 30" (length, weight), "L coal 80 12000 n" (name, weight, value, dangerous),
+     * "S coal", "W train.bin", or "O train.bin". Product and file names may contain spaces.
+     * A failing command prints its line number and the error, and the next lines still run.
+     *
+     * @param in
+     *      Stream of commands.
+     *
+     * @throws IOException
+     *      when the commands can't be read.
+     */
+    private static void runBatch(InputStream in) throws IOException {
+        CommandTokenizer command = new CommandTokenizer(in);
+
+        while(run && command.nextLine()) {
+            if(command.tokenCount() == 0)
+                continue;
+
+            try {
+                batchCommand(command);
+            } catch(NumberFormatException e){
+                System.out.println("Line " + command.getLineNumber() + ": Invalid input. Please only enter a number.\n");
+            }
+            catch(IllegalArgumentException | InputMisMatchException | EmptyListException e) {
+                System.out.println("Line " + command.getLineNumber() + ": " + e.getMessage());
+            }
+            catch(IOException e) {
+                System.out.println("Line " + command.getLineNumber() + ": File error: " + e.getMessage() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Performs a single command of a command file.
+     *
+     * @param command
+     *      Tokenizer positioned on the line of the command.
+     */
+    private static void batchCommand(CommandTokenizer command) throws EmptyListException, InputMisMatchException,
+            IOException {
+        int count = command.tokenCount();
+
+        switch (command.character(0)) {
+            case 'F' -> moveCursor(true);
+            case 'B' -> moveCursor(false);
+            case 'I' -> {
+                expect(count == 3, "I <length> <weight>");
+                insertCar(command.number(1), command.number(2));
+            }
+            case 'R' -> removeTrain();
+            case 'L' -> {
+                expect(count >= 5, "L <name> <weight> <value> <y|n>");
+                if(train.getCursorData() == null)
+                    throw new EmptyListException("Please insert a train car first.\n");
+
+                ProductLoad load = new ProductLoad();
+                load.setName(command.text(1, count - 3));
+                load.setWeight(command.number(count - 3));
+                load.setValue(command.number(count - 2));
+                load.setIsDangerous(isDangerous(command.token(count - 1)));
+                loadCar(load);
+            }
+            case 'S' -> {
+                expect(count >= 2, "S <name>");
+                renderer.productFound(train.findProduct(command.text(1, count)));
+            }
+            case 'T' -> renderer.summary(train);
+            case 'M' -> renderer.manifest(train);
+            case 'D' -> removeDangerous();
+            case 'W' -> {
+                expect(count >= 2, "W <file>");
+                saveTrain(command.text(1, count));
+            }
+            case 'O' -> {
+                expect(count >= 2, "O <file>");
+                openTrain(command.text(1, count));
+            }
+            case 'C' -> {
+                expect(count >= 2, "C <file>");
+                importTrain(command.text(1, count));
+            }
+            case 'X' -> {
+                expect(count >= 2, "X <file>");
+                exportTrain(command.text(1, count));
+            }
+            case 'P' -> printMetrics();
+            case 'U' -> renderer.undo(persistentTrain("Undo").undo());
+            case 'Y' -> renderer.redo(persistentTrain("Redo").redo());
+            case 'Q' -> run = false;
+            default -> throw new InputMisMatchException("Unknown command: " + command.token(0) + "\n");
+        }
+    }
+
+    /**
+     * Checks the number of fields of a command.
+     *
+     * @param valid
+     *      Whether the command has the expected fields.
+     *
+     * @param usage
+     *      Expected form of the command.
+     *
+     * @throws InputMisMatchException
+     *      when the command doesn't have the expected fields.
+     */
+    private static void expect(boolean valid, String usage) throws InputMisMatchException {
+        if(!valid)
+            throw new InputMisMatchException("Invalid command. Usage: " + usage + "\n");
+    }
+
+    /**
+     * Runs a command file, or the commands given on the standard input if the file name is "-".
+     * Everything printed is buffered and written at once.
+     *
+     * @param fileName
+     *      Name of the command file, or "-".
+     */
+    private static void batch(String fileName) {
+        PrintStream console = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                1 << 16), false);
+        System.setOut(buffered);
+        renderer = new TrainRenderer(buffered);
+
+        try(InputStream in = fileName.equals("-") ? System.in : Files.newInputStream(Path.of(fileName))) {
+            runBatch(in);
+        } catch(IOException e) {
+            System.out.println("File error: " + e.getMessage() + "\n");
+        } finally {
+            closeJournal();
+            buffered.flush();
+            System.setOut(console);
+            renderer = new TrainRenderer(console);
+        }
+    }
+
     /**
      * The main method runs a menu-driven application which first creates
-     * an empty TrainLinkedList object. The program prompts the user for a command
+     * an empty train, stored as chosen by the train.storage system property
+     * (see TrainFactory). If the train.journal system property names a directory,
+     * the train is instead rebuilt from the journal kept there, and every change is
+     * journaled (see TrainJournal); the journal only keeps a linked train, so any other
+     * storage is rejected. If the train.metrics system property is "true", the
+     * durations of the main operations are recorded and shown through JMX (see TrainMetrics).
+     * With the arguments "--batch file", the commands of the file are run instead (see
+     * runBatch). The program prompts the user for a command
      * to execute an operation. Once a command has been chosen, the program may ask
      * the user for additional information if necessary, and perform the operation.
      *
      */
     public static void main(String[] args) {
-        train = new TrainLinkedList();
+        try {
+            String journalDirectory = System.getProperty("train.journal");
+
+            if(journalDirectory == null)
+                train = TrainFactory.create();
+            else {
+                String storage = System.getProperty(TrainFactory.STORAGE_PROPERTY, TrainFactory.DEFAULT_STORAGE);
+                if(!TrainFactory.normalise(storage).equals(TrainFactory.DEFAULT_STORAGE))
+                    throw new IllegalArgumentException("Invalid. The journal only keeps a linked train, "
+                            + TrainFactory.STORAGE_PROPERTY + " can't be " + storage + ".\n");
+
+                journal = TrainJournal.open(Path.of(journalDirectory));
+                train = journal.getTrain();
+            }
+
+            if(Boolean.getBoolean(TrainMetrics.METRICS_PROPERTY)) {
+                metrics = new TrainMetrics();
+                train = meter(train);
+                metrics.register();
+            }
+        } catch(JMException e) {
+            System.out.println("JMX error: " + e.getMessage() + "\n");
+        } catch(IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        } catch(IOException e) {
+            System.out.println("File error: " + e.getMessage() + "\n");
+            return;
+        }
         run = true;
+        if(args.length > 0 && args[0].equals("--batch")) {
+            batch((args.length > 1) ? args[1] : "-");
+            return;
+        }
+
         input = new Scanner(System.in);
         while(run) {
                 System.out.println("""
@@ -174,6 +580,13 @@ public class TrainManager {
                         (T) Display Train
                         (M) Display Manifest
                         (D) Remove Dangerous Cars
+                        (W) Save Train To File
+                        (O) Open Train From File
+                        (C) Import Cars From CSV
+                        (X) Export Train To CSV
+                        (P) Print Metrics
+                        (U) Undo Last Change
+                        (Y) Redo Last Change
                         (Q) Quit
                         """);
                 System.out.print("Enter a selection: ");
@@ -185,6 +598,9 @@ public class TrainManager {
             catch(IllegalArgumentException | InputMisMatchException | EmptyListException e) {
                 System.out.println(e.getMessage());
             }
+            catch(IOException e) {
+                System.out.println("File error: " + e.getMessage() + "\n");
+            }
         }
 
     }
@@ -0,0 +1,165 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The TrainMetrics class collects the metrics of a train wrapped in a MeteredTrain: a
+ * LatencyHistogram per metered operation, and gauges reading the size, length, weight, value,
+ * and number of dangerous cars of the train. They can be printed by TrainRenderer or registered
+ * as JMX MBeans, under the "train" domain, to be read with tools such as JConsole.
+ * <p>
+ * The gauges read the totals of the train without locking it, so a gauge read while the train
+ * changes may be slightly out of date.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainMetrics implements TrainMetricsMBean {
+    /**
+     * Name of the system property used by TrainManager to enable the metrics.
+     */
+    public static final String METRICS_PROPERTY = "train.metrics";
+
+    /**
+     * JMX domain of the MBeans.
+     */
+    public static final String DOMAIN = "train";
+
+    /**
+     * The Operation enum lists the operations of a train whose durations are recorded.
+     */
+    public enum Operation {
+        INSERT_AFTER_CURSOR("insertAfterCursor"),
+        REMOVE_CURSOR("removeCursor"),
+        FIND_PRODUCT("findProduct"),
+        REMOVE_DANGEROUS_CARS("removeDangerousCars"),
+        WRITE_MANIFEST("writeManifest");
+
+        private final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+
+        /**
+         * Accessor. Returns the name of the Train method of the operation.
+         *
+         * @return
+         * 		Name of the method.
+         * */
+        public String getMethodName() {
+            return methodName;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private volatile Train train;
+
+    /**
+     * Constructor creates a TrainMetrics object with no duration recorded. Its gauges read 0 until
+     * a MeteredTrain uses it.
+     */
+    public TrainMetrics() {
+        for(int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Modifier. Changes the train read by the gauges.
+     *
+     * @param train
+     * 		The train being metered.
+     */
+    void setTrain(Train train) {
+        this.train = train;
+    }
+
+    /**
+     * Records the duration of an operation started at the given time.
+     *
+     * @param operation
+     * 		The operation.
+     *
+     * @param start
+     * 		Value of System.nanoTime() when the operation started.
+     */
+    public void record(Operation operation, long start) {
+        histograms[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Accessor. Returns the histogram of the durations of an operation.
+     *
+     * @param operation
+     * 		The operation.
+     *
+     * @return
+     * 		The histogram of the operation.
+     * */
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    @Override
+    public int getSize() {
+        Train observed = train;
+        return (observed == null) ? 0 : observed.size();
+    }
+
+    @Override
+    public double getLength() {
+        Train observed = train;
+        return (observed == null) ? 0 : observed.getLength();
+    }
+
+    @Override
+    public double getWeight() {
+        Train observed = train;
+        return (observed == null) ? 0 : observed.getWeight();
+    }
+
+    @Override
+    public double getValue() {
+        Train observed = train;
+        return (observed == null) ? 0 : observed.getValue();
+    }
+
+    @Override
+    public int getNumOfDangerousCar() {
+        Train observed = train;
+        return (observed == null) ? 0 : observed.getNumOfDangerousCar();
+    }
+
+    @Override
+    public void reset() {
+        for(LatencyHistogram histogram : histograms)
+            histogram.reset();
+    }
+
+    /**
+     * Registers the gauges as the MBean "train:type=Train" and the histogram of every operation
+     * as "train:type=Operation,name=" followed by the name of its method, in the platform MBean
+     * server. MBeans already registered under those names are replaced.
+     *
+     * @throws JMException
+     * 		when an MBean can't be registered.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        register(server, new ObjectName(DOMAIN, "type", "Train"), this);
+        for(Operation operation : Operation.values()) {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + operation.getMethodName());
+            register(server, name, getHistogram(operation));
+        }
+    }
+
+    /**
+     * Registers an MBean, replacing the one already registered under the same name.
+     */
+    private static void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        if(server.isRegistered(name))
+            server.unregisterMBean(name);
+        server.registerMBean(mbean, name);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * The TrainMetricsMBean interface describes the gauges of a metered train shown through JMX.
+ *
+ * @author Zhen Wei Liao
+ **/
+public interface TrainMetricsMBean {
+
+    /**
+     * Returns the number of cars.
+     *
+     * @return
+     * 		Number of cars on the train.
+     * */
+    int getSize();
+
+    /**
+     * Returns the total length of the train in meters.
+     *
+     * @return
+     * 		Total length of the train.
+     * */
+    double getLength();
+
+    /**
+     * Returns the total weight of the train in ton.
+     *
+     * @return
+     * 		Sum of each car weights plus the sum of the product loads carried by the cars.
+     * */
+    double getWeight();
+
+    /**
+     * Returns the total value of products carried by the train.
+     *
+     * @return
+     * 		Sum of each car values.
+     * */
+    double getValue();
+
+    /**
+     * Returns the number of cars carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars on the train.
+     * */
+    int getNumOfDangerousCar();
+
+    /**
+     * Forgets the durations recorded by every operation.
+     * */
+    void reset();
+}
@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+
+/**
+ * The TrainRenderer class prints the results of the train operations for a user. The trains
+ * themselves never print anything: their operations return results, such as a ProductSearchResult
+ * or whether the cursor moved, and TrainManager hands those to a TrainRenderer.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainRenderer {
+    private final PrintStream out;
+
+    /**
+     * Constructor creates a TrainRenderer printing to the given stream.
+     *
+     * @param out
+     * 		The stream receiving the output, such as System.out.
+     */
+    public TrainRenderer(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Prints the result of moving the cursor forward.
+     *
+     * @param moved
+     * 		Whether the cursor moved, as returned by Train.cursorForward().
+     */
+    public void cursorForward(boolean moved) {
+        out.println(moved ? "Cursor moved forward.\n" : "No next car; cannot move cursor forward.\n");
+    }
+
+    /**
+     * Prints the result of moving the cursor backward.
+     *
+     * @param moved
+     * 		Whether the cursor moved, as returned by Train.cursorBackward().
+     */
+    public void cursorBackward(boolean moved) {
+        out.println(moved ? "Cursor moved backward.\n" : "No previous car, cannot move cursor backward.\n");
+    }
+
+    /**
+     * Prints the result of undoing the last change.
+     *
+     * @param undone
+     * 		Whether a change was undone, as returned by PersistentTrain.undo().
+     */
+    public void undo(boolean undone) {
+        out.println(undone ? "Last change undone.\n" : "Nothing to undo.\n");
+    }
+
+    /**
+     * Prints the result of redoing the last change undone.
+     *
+     * @param redone
+     * 		Whether a change was redone, as returned by PersistentTrain.redo().
+     */
+    public void redo(boolean redone) {
+        out.println(redone ? "Last change redone.\n" : "Nothing to redo.\n");
+    }
+
+    /**
+     * Prints the results obtained from findProduct().
+     *
+     * @param result
+     *      The result of the search.
+     */
+    public void productFound(ProductSearchResult result) {
+        if(!result.isFound())
+            out.println("No record of " + result.getName() + " on board train.\n");
+        else {
+            out.println("The following products were found on " + result.getNumOfCar() + " cars:");
+
+            load(result.getName(), result.getWeight(), result.getValue(), result.isDangerous());
+        }
+    }
+
+    /**
+     * Prints a neatly formatted table of a product load, or of an empty load if there is none.
+     *
+     * @param load
+     * 		The product load, or null.
+     * */
+    public void load(ProductLoad load) {
+        if(load == null)
+            load("Empty", 0.0, 0.00, false);
+        else
+            load(load.getName(), load.getWeight(), load.getValue(), load.isDangerous());
+    }
+
+    /**
+     * Prints a neatly formatted table of a specific product load.
+     *
+     * @param name
+     * 		Name of the product
+     *
+     * @param weight
+     * 		Weight of the product
+     *
+     * @param value
+     * 		value of the product
+     *
+     * 	@param isDangerous
+     * 		Whether the product is dangerous or not
+     * */
+    public void load(String name, double weight, double value, boolean isDangerous) {
+        String table = "\n" + String.format("%-4s%-10s%-13s%-12s%-12s",
+                " ", "Name", "Weight (t)", "Value ($)", "Dangerous") + "\n" + "=".repeat(51) +
+                "\n" + String.format("%-4s%-10s%-13.1f%-18s%-3s", " ", name, weight,
+                String.format("%,.2f", value), (isDangerous)? "Yes" : "No") + "\n";
+
+        out.println(table);
+    }
+
+    /**
+     * Prints a neatly formatted table of all the cars on the train.
+     *
+     * @param train
+     * 		The train whose manifest is printed.
+     * */
+    public void manifest(Train train) {
+        try {
+            train.writeManifest(new OutputStreamWriter(out));
+        } catch(IOException e) {
+            out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the summary of a train: its number of cars, length, weight, value, and dangerousness.
+     *
+     * @param train
+     * 		The train being summarized.
+     * */
+    public void summary(Train train) {
+        out.print(train);
+    }
+
+    /**
+     * Prints a neatly formatted table of the durations of the metered operations, in microseconds,
+     * followed by the gauges of the train.
+     *
+     * @param metrics
+     * 		The metrics being printed.
+     * */
+    public void metrics(TrainMetrics metrics) {
+        StringBuilder table = new StringBuilder(String.format("%-4s%-22s%-10s%-11s%-11s%-11s%-11s%-11s",
+                " ", "Operation", "Count", "Mean (us)", "p50 (us)", "p99 (us)", "p99.9 (us)", "Max (us)"))
+                .append("\n").append("=".repeat(91)).append("\n");
+
+        for(TrainMetrics.Operation operation : TrainMetrics.Operation.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(operation);
+            table.append(String.format("%-4s%-22s%-10d%-11.1f%-11.1f%-11.1f%-11.1f%-11.1f", " ",
+                    operation.getMethodName(), histogram.getCount(), histogram.getMeanMicros(),
+                    histogram.getP50Micros(), histogram.getP99Micros(), histogram.getP999Micros(),
+                    histogram.getMaxMicros())).append("\n");
+        }
+
+        table.append("\nGauges: ").append(metrics.getSize()).append(" cars, ").append(metrics.getLength())
+                .append(" meters, ").append(metrics.getWeight()).append(" tons, ")
+                .append(String.format("$%,.2f", metrics.getValue())).append(" value, ")
+                .append(metrics.getNumOfDangerousCar()).append(" dangerous cars.\n");
+        out.println(table);
+    }
+}
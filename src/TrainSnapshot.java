@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The TrainSnapshot class is a point-in-time view of a TrainLinkedList, returned by its snapshot()
+ * method. The snapshot holds an immutable TrainVersion of copies of the cars, so it can be read,
+ * iterated, or written as a manifest from any thread, as slowly as needed, while the train keeps
+ * changing. The snapshot never sees those changes, and never blocks them.
+ * <p>
+ * A snapshot costs nothing to keep but the cars changed since it was taken: it shares all the
+ * others with the train and with the other snapshots, and is reclaimed by the garbage collector
+ * once no reader references it anymore. As long as the last snapshot of a train is referenced,
+ * the train also keeps copying its changes for the next one, as TrainLinkedList.snapshot() tells.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainSnapshot implements Iterable<TrainCar> {
+    private final TrainVersion cars;
+    private final int cursor;
+    private final long version;
+
+    // counted on the first search, by whichever reader asks first
+    private volatile Map<String, ProductTotal> products;
+
+    /**
+     * Constructor creates a TrainSnapshot of the given cars.
+     *
+     * @param cars
+     *      The cars of the train when the snapshot was taken.
+     *
+     * @param cursor
+     *      Position of the cursor, or -1 if the train was empty.
+     *
+     * @param version
+     *      Version of the train when the snapshot was taken.
+     */
+    TrainSnapshot(TrainVersion cars, int cursor, long version) {
+        this.cars = cars;
+        this.cursor = cursor;
+        this.version = version;
+    }
+
+    /**
+     * Accessor. Returns the cars of the snapshot.
+     *
+     * @return
+     * 		The immutable version holding the cars.
+     * */
+    public TrainVersion getCars() {
+        return cars;
+    }
+
+    /**
+     * Accessor. Returns the version of the train when the snapshot was taken.
+     *
+     * @return
+     * 		The version of the train, as returned by TrainLinkedList.getVersion().
+     * */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Accessor. Returns the position of the cursor when the snapshot was taken.
+     *
+     * @return
+     * 		Position of the cursor starting from 0 at the head, or -1 if the train was empty.
+     * */
+    public int getCursorPosition() {
+        return cursor;
+    }
+
+    /**
+     * Returns the TrainCar at the given position. The car is shared with the train's other
+     * snapshots, so it must not be changed.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @return
+     * 		TrainCar at the given position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainCar get(int position) throws IllegalArgumentException {
+        return cars.get(position);
+    }
+
+    /**
+     * Returns the number of TrainCar.
+     *
+     * @return
+     * 		Number of TrainCar objects on the train.
+     * */
+    public int size() {
+        return cars.size();
+    }
+
+    /**
+     * Checks if the train was empty.
+     *
+     * @return
+     *      True if the train had no car, false otherwise.
+     */
+    public boolean isEmpty() {
+        return cars.size() == 0;
+    }
+
+    /**
+     * Accessor. Returns the total length of the train in meters.
+     *
+     * @return
+     * 		Total length of the train.
+     * */
+    public double getLength() {
+        return FixedPoint.toDouble(cars.getLengthMillimetres(), FixedPoint.MILLI);
+    }
+
+    /**
+     * Accessor. Returns the total value of products carried by the train.
+     *
+     * @return
+     * 		Sum of each TrainCar values.
+     * */
+    public double getValue() {
+        return FixedPoint.toDouble(cars.getValueCents(), FixedPoint.CENTI);
+    }
+
+    /**
+     * Accessor. Returns the total weight of the train in ton.
+     *
+     * @return
+     * 		Sum each TrainCar weights plus the sum of the ProductLoad carried by that car.
+     * */
+    public double getWeight() {
+        return FixedPoint.toDouble(cars.getWeightKilograms(), FixedPoint.MILLI);
+    }
+
+    /**
+     * Tells whether there was a dangerous product on the train.
+     *
+     * @return
+     * 		True if at least one TrainCar is carrying a dangerous product, false otherwise.
+     * */
+    public boolean isDangerous() {
+        return cars.getNumOfDangerousCar() > 0;
+    }
+
+    /**
+     * Accessor. Returns the number of TrainCar carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous TrainCar on the train.
+     * */
+    public int getNumOfDangerousCar() {
+        return cars.getNumOfDangerousCar();
+    }
+
+    /**
+     * Looks up the totals of the product that has the same name as the desired name. The totals
+     * of all products are counted by the first search, and later searches take constant time.
+     *
+     * @param name
+     * 		Name of the ProductLoad to find on the train.
+     *
+     * @return
+     * 		The number of cars carrying the product and the sums of their weights and values.
+     * */
+    public ProductSearchResult findProduct(String name) {
+        Map<String, ProductTotal> counted = products;
+
+        if(counted == null) {
+            counted = new HashMap<>();
+            for(TrainCar car : cars) {
+                if(!car.isEmpty())
+                    counted.computeIfAbsent(car.getProductLoad().getName(), key -> new ProductTotal())
+                            .add(car.getProductLoad());
+            }
+            products = counted;
+        }
+        return ProductSearchResult.of(name, counted.get(name));
+    }
+
+    /**
+     * Writes the manifest of the train as it was when the snapshot was taken, in the same format
+     * as TrainLinkedList.writeManifest().
+     *
+     * @param out
+     *      Writer receiving the table.
+     *
+     * @throws IOException
+     *      when the table can't be written.
+     * */
+    public void writeManifest(Writer out) throws IOException {
+        ManifestWriter manifest = new ManifestWriter(out);
+        manifest.writeHeader();
+
+        int position = 0;
+        for(TrainCar car : cars) {
+            ProductLoad load = car.getProductLoad();
+
+            if(load == null)
+                manifest.writeRow(position == cursor, position + 1, car.getCarLength(), car.getCarWeight(), "Empty",
+                        0, 0, false);
+            else
+                manifest.writeRow(position == cursor, position + 1, car.getCarLength(), car.getCarWeight(),
+                        load.getName(), load.getWeight(), load.getValue(), load.isDangerous());
+            position++;
+        }
+        manifest.finish();
+    }
+
+    /**
+     * Returns an Iterator over the TrainCar objects of the snapshot, from the head to the tail.
+     * The cars are shared with the train's other snapshots, so they must not be changed.
+     *
+     * @return
+     * 		Iterator over the cars of the snapshot.
+     * */
+    @Override
+    public Iterator<TrainCar> iterator() {
+        return cars.iterator();
+    }
+
+    /**
+     * Returns a neatly formatted String representation of the train when the snapshot was taken,
+     * in the same format as TrainLinkedList.toString().
+     *
+     * @return
+     * 		String representation of the train.
+     * */
+    @Override
+    public String toString() {
+        return TrainLinkedList.summary(size(), getLength(), getWeight(), getValue(), isDangerous());
+    }
+}
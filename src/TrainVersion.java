@@ -0,0 +1,568 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * The TrainVersion class is an immutable train: a persistent treap of TrainCar objects ordered by
+ * position, in which every node caches the number, length, weight, value, and number of dangerous
+ * cars below it. Inserting, removing, or replacing a car returns a new version in O(log n) expected
+ * time, which copies only the nodes on the path to the car and shares all the others with the old
+ * version. Keeping many versions therefore costs memory in proportion to the changes made, not to
+ * the length of the train.
+ * <p>
+ * The cars themselves are shared by the versions, so they must not be changed once they are on a
+ * version; a changed car is put on a new version with set() instead.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class TrainVersion implements Iterable<TrainCar> {
+    private static final TrainVersion EMPTY = new TrainVersion(null);
+
+    private final Node root;
+
+    /**
+     * The Node class is an immutable node of the treap.
+     */
+    private static final class Node {
+        private final TrainCar car;
+        private final int priority;
+        private final Node left, right;
+        private final int size, dangerous;
+        private final long length, weight, value;  // millimetres, kilograms, cents
+
+        /**
+         * Constructor creates a Node and computes the totals of its subtree.
+         */
+        private Node(TrainCar car, int priority, Node left, Node right) {
+            this.car = car;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+
+            ProductLoad load = car.getProductLoad();
+            int size = 1, dangerous = 0;
+            long length = car.getCarLengthMillimetres(), weight = car.getCarWeightKilograms(), value = 0;
+
+            if(load != null) {
+                weight += load.getWeightKilograms();
+                value = load.getValueCents();
+                if(load.isDangerous())
+                    dangerous = 1;
+            }
+            if(left != null) {
+                size += left.size;
+                dangerous += left.dangerous;
+                length += left.length;
+                weight += left.weight;
+                value += left.value;
+            }
+            if(right != null) {
+                size += right.size;
+                dangerous += right.dangerous;
+                length += right.length;
+                weight += right.weight;
+                value += right.value;
+            }
+
+            this.size = size;
+            this.dangerous = dangerous;
+            this.length = length;
+            this.weight = weight;
+            this.value = value;
+        }
+
+        /**
+         * Returns a copy of the node with other children.
+         */
+        private Node with(Node left, Node right) {
+            return (left == this.left && right == this.right) ? this : new Node(car, priority, left, right);
+        }
+    }
+
+    /**
+     * Constructor creates a TrainVersion with the given tree. Use empty() to obtain an empty train.
+     */
+    private TrainVersion(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the version without any car.
+     *
+     * @return
+     * 		An empty train.
+     */
+    public static TrainVersion empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a version holding copies of the given cars, in order. The treap is built in a single
+     * pass over the cars, in O(n) time, rather than by inserting them one by one.
+     *
+     * @param cars
+     * 		The cars being copied, from the head to the tail.
+     *
+     * @param size
+     * 		Number of cars.
+     *
+     * @return
+     * 		A version holding copies of the cars.
+     */
+    static TrainVersion copyOf(Iterable<TrainCar> cars, int size) {
+        TrainCar[] copies = new TrainCar[size];
+        int[] priorities = new int[size], left = new int[size], right = new int[size], spine = new int[size];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = 0, top = -1;
+
+        // the right spine of the treap built so far is kept on a stack
+        for(TrainCar car : cars) {
+            copies[count] = copy(car);
+            priorities[count] = random.nextInt();
+            right[count] = -1;
+
+            int last = -1;
+            while(top >= 0 && priorities[spine[top]] < priorities[count])
+                last = spine[top--];
+            left[count] = last;
+            if(top >= 0)
+                right[spine[top]] = count;
+            spine[++top] = count++;
+        }
+
+        return (count == 0) ? EMPTY : new TrainVersion(build(spine[0], copies, priorities, left, right));
+    }
+
+    /**
+     * Returns a copy of a car and of its product load, or null if the car is null.
+     *
+     * @param car
+     * 		The car being copied.
+     *
+     * @return
+     * 		A new TrainCar equal to the car.
+     */
+    static TrainCar copy(TrainCar car) {
+        if(car == null)
+            return null;
+
+        TrainCar copy = new TrainCar(car.getCarWeight(), car.getCarLength());
+        copy.setProductLoad(copy(car.getProductLoad()));
+        return copy;
+    }
+
+    /**
+     * Returns a copy of a product load, or null if the load is null.
+     *
+     * @param load
+     * 		The product load being copied.
+     *
+     * @return
+     * 		A new ProductLoad of the same product, weight, and value.
+     */
+    static ProductLoad copy(ProductLoad load) {
+        if(load == null)
+            return null;
+
+        return new ProductLoad(load.getProduct(), load.getWeight(), load.getValue());
+    }
+
+    /**
+     * Returns the number of cars.
+     *
+     * @return
+     * 		Number of cars on the train.
+     * */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the total length of the train.
+     *
+     * @return
+     * 		Total length in millimetres.
+     * */
+    public long getLengthMillimetres() {
+        return (root == null) ? 0 : root.length;
+    }
+
+    /**
+     * Returns the total weight of the train, product loads included.
+     *
+     * @return
+     * 		Total weight in kilograms.
+     * */
+    public long getWeightKilograms() {
+        return (root == null) ? 0 : root.weight;
+    }
+
+    /**
+     * Returns the total value of products carried by the train.
+     *
+     * @return
+     * 		Total value in cents.
+     * */
+    public long getValueCents() {
+        return (root == null) ? 0 : root.value;
+    }
+
+    /**
+     * Returns the number of cars carrying a dangerous product.
+     *
+     * @return
+     * 		Number of dangerous cars on the train.
+     * */
+    public int getNumOfDangerousCar() {
+        return (root == null) ? 0 : root.dangerous;
+    }
+
+    /**
+     * Returns the TrainCar at a position.
+     *
+     * @param position
+     * 		Position of the car, starting from 0 at the head of the train.
+     *
+     * @return
+     * 		TrainCar at the position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainCar get(int position) throws IllegalArgumentException {
+        checkPosition(position, size() - 1);
+
+        Node node = root;
+        while(true) {
+            int leftSize = size(node.left);
+
+            if(position < leftSize)
+                node = node.left;
+            else if(position == leftSize)
+                return node.car;
+            else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Returns a new version with a car inserted so that it ends up at the given position.
+     *
+     * @param position
+     * 		Position of the inserted car, from 0 (new head) to size() (new tail).
+     *
+     * @param car
+     * 		The inserted TrainCar.
+     *
+     * @return
+     * 		The new version.
+     *
+     * @throws IllegalArgumentException
+     * 		when the car is null or the position is out of range.
+     * */
+    public TrainVersion insertAt(int position, TrainCar car) throws IllegalArgumentException {
+        if(car == null)
+            throw new IllegalArgumentException("The inserted train car can't be null.");
+        checkPosition(position, size());
+
+        return new TrainVersion(insert(root, position, car, ThreadLocalRandom.current().nextInt()));
+    }
+
+    /**
+     * Returns a new version without the car at the given position.
+     *
+     * @param position
+     * 		Position of the removed car.
+     *
+     * @return
+     * 		The new version.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainVersion removeAt(int position) throws IllegalArgumentException {
+        checkPosition(position, size() - 1);
+
+        return new TrainVersion(remove(root, position));
+    }
+
+    /**
+     * Returns a new version in which the car at the given position is replaced.
+     *
+     * @param position
+     * 		Position of the replaced car.
+     *
+     * @param car
+     * 		The TrainCar taking its place.
+     *
+     * @return
+     * 		The new version.
+     *
+     * @throws IllegalArgumentException
+     * 		when the car is null or the position is out of range.
+     * */
+    public TrainVersion set(int position, TrainCar car) throws IllegalArgumentException {
+        if(car == null)
+            throw new IllegalArgumentException("The train car can't be null.");
+        checkPosition(position, size() - 1);
+
+        return new TrainVersion(replace(root, position, car));
+    }
+
+    /**
+     * Returns a version holding the cars before a position.
+     *
+     * @param position
+     * 		Position of the first car left out, from 0 to size().
+     *
+     * @return
+     * 		The version of the cars before the position.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainVersion headTo(int position) throws IllegalArgumentException {
+        checkPosition(position, size());
+
+        return new TrainVersion(split(root, position)[0]);
+    }
+
+    /**
+     * Returns a version holding the cars from a position to the tail.
+     *
+     * @param position
+     * 		Position of the first car kept, from 0 to size().
+     *
+     * @return
+     * 		The version of the cars from the position on.
+     *
+     * @throws IllegalArgumentException
+     * 		when the position is out of range.
+     * */
+    public TrainVersion tailFrom(int position) throws IllegalArgumentException {
+        checkPosition(position, size());
+
+        return new TrainVersion(split(root, position)[1]);
+    }
+
+    /**
+     * Returns a version holding the cars of this version followed by the cars of another one.
+     *
+     * @param other
+     * 		The version whose cars follow.
+     *
+     * @return
+     * 		The joined version.
+     * */
+    public TrainVersion concat(TrainVersion other) {
+        if(other.root == null)
+            return this;
+        if(root == null)
+            return other;
+
+        return new TrainVersion(merge(root, other.root));
+    }
+
+    /**
+     * Returns a new version without the cars matching the filter. The subtrees without any
+     * matching car are shared with this version.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to remove.
+     *
+     * @return
+     * 		The new version, or this version if no car matched.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter is null.
+     * */
+    public TrainVersion removeIf(Predicate<? super TrainCar> filter) throws IllegalArgumentException {
+        return removeIf(filter, false);
+    }
+
+    /**
+     * Returns a new version without the cars matching the filter.
+     *
+     * @param filter
+     * 		Predicate returning true for the cars to remove.
+     *
+     * @param dangerousOnly
+     * 		True if the filter only matches dangerous cars, so that the subtrees without any
+     * 		dangerous car are skipped without being walked.
+     *
+     * @return
+     * 		The new version, or this version if no car matched.
+     *
+     * @throws IllegalArgumentException
+     * 		when the filter is null.
+     * */
+    TrainVersion removeIf(Predicate<? super TrainCar> filter, boolean dangerousOnly) throws IllegalArgumentException {
+        if(filter == null)
+            throw new IllegalArgumentException("The filter can't be null.");
+
+        Node filtered = filter(root, filter, dangerousOnly);
+        return (filtered == root) ? this : new TrainVersion(filtered);
+    }
+
+    /**
+     * Returns an Iterator over the TrainCar objects of the version, from the head to the tail.
+     * It keeps the path to the next car, so walking all the cars takes O(n) time.
+     *
+     * @return
+     * 		Iterator over the cars of the version.
+     * */
+    @Override
+    public Iterator<TrainCar> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node> path = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public TrainCar next() {
+                if(path.isEmpty())
+                    throw new NoSuchElementException();
+
+                Node node = path.pop();
+                pushLeft(node.right);
+                return node.car;
+            }
+
+            /**
+             * Pushes a node and its left descendants on the path.
+             */
+            private void pushLeft(Node node) {
+                for(; node != null; node = node.left)
+                    path.push(node);
+            }
+        };
+    }
+
+    /**
+     * Checks that a position is between 0 and the given maximum.
+     */
+    private static void checkPosition(int position, int max) throws IllegalArgumentException {
+        if(position < 0 || position > max)
+            throw new IllegalArgumentException("Invalid. Position must be between 0 and " + max + ".\n");
+    }
+
+    /**
+     * Returns the number of cars of a subtree.
+     */
+    private static int size(Node node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * Creates the nodes of a subtree laid out by copyOf(), children first.
+     */
+    private static Node build(int car, TrainCar[] cars, int[] priorities, int[] left, int[] right) {
+        if(car < 0)
+            return null;
+
+        return new Node(cars[car], priorities[car], build(left[car], cars, priorities, left, right),
+                build(right[car], cars, priorities, left, right));
+    }
+
+    /**
+     * Returns a subtree with a car inserted at a position within it.
+     */
+    private static Node insert(Node node, int position, TrainCar car, int priority) {
+        if(node == null || priority > node.priority) {
+            Node[] parts = split(node, position);
+            return new Node(car, priority, parts[0], parts[1]);
+        }
+
+        int leftSize = size(node.left);
+        if(position <= leftSize)
+            return node.with(insert(node.left, position, car, priority), node.right);
+        return node.with(node.left, insert(node.right, position - leftSize - 1, car, priority));
+    }
+
+    /**
+     * Returns a subtree without the car at a position within it.
+     */
+    private static Node remove(Node node, int position) {
+        int leftSize = size(node.left);
+
+        if(position < leftSize)
+            return node.with(remove(node.left, position), node.right);
+        if(position == leftSize)
+            return merge(node.left, node.right);
+        return node.with(node.left, remove(node.right, position - leftSize - 1));
+    }
+
+    /**
+     * Returns a subtree in which the car at a position is replaced.
+     */
+    private static Node replace(Node node, int position, TrainCar car) {
+        int leftSize = size(node.left);
+
+        if(position < leftSize)
+            return node.with(replace(node.left, position, car), node.right);
+        if(position == leftSize)
+            return new Node(car, node.priority, node.left, node.right);
+        return node.with(node.left, replace(node.right, position - leftSize - 1, car));
+    }
+
+    /**
+     * Returns a subtree without the cars matching a filter.
+     */
+    private static Node filter(Node node, Predicate<? super TrainCar> filter, boolean dangerousOnly) {
+        if(node == null || (dangerousOnly && node.dangerous == 0))
+            return node;
+
+        Node left = filter(node.left, filter, dangerousOnly);
+        boolean removed = filter.test(node.car);
+        Node right = filter(node.right, filter, dangerousOnly);
+
+        return removed ? merge(left, right) : node.with(left, right);
+    }
+
+    /**
+     * Splits a subtree into the cars before a position and the cars from that position on,
+     * copying the nodes along the split path.
+     */
+    private static Node[] split(Node node, int position) {
+        if(node == null)
+            return new Node[2];
+
+        int leftSize = size(node.left);
+        if(position <= leftSize) {
+            Node[] parts = split(node.left, position);
+            parts[1] = node.with(parts[1], node.right);
+            return parts;
+        }
+
+        Node[] parts = split(node.right, position - leftSize - 1);
+        parts[0] = node.with(node.left, parts[0]);
+        return parts;
+    }
+
+    /**
+     * Merges two subtrees, all cars of the first one being before the cars of the second one,
+     * copying the nodes along the merge path.
+     */
+    private static Node merge(Node first, Node second) {
+        if(first == null)
+            return second;
+        if(second == null)
+            return first;
+
+        if(first.priority > second.priority)
+            return first.with(first.left, merge(first.right, second));
+        return second.with(merge(first, second.left), second.right);
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Yard class keeps many named trains, and moves cars from one train to another by relinking
+ * their nodes instead of copying them. Moving k cars off a train of n cars costs O(log n) to
+ * update the position indexes and the totals, plus O(min(k, n - k)) to count again the product
+ * totals of the smaller part, and merging them into the other train costs the smaller number of
+ * products of the two.
+ * <p>
+ * The registry itself can be used from several threads. Each train is guarded by its own monitor:
+ * moveCars() locks both trains, always in the order of their names so that two opposite moves
+ * can't deadlock, and code sharing a train of the yard between threads must synchronize on it
+ * as well.
+ *
+ * @author Zhen Wei Liao
+ **/
+public class Yard {
+    private final ConcurrentMap<String, TrainLinkedList> trains = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor creates an empty Yard object.
+     */
+    public Yard() {
+
+    }
+
+    /**
+     * Adds a new empty train to the yard.
+     *
+     * @param name
+     * 		Name of the train.
+     *
+     * @return
+     * 		The new train.
+     *
+     * @throws IllegalArgumentException
+     * 		when the name is null or a train of the yard already has it.
+     */
+    public TrainLinkedList create(String name) throws IllegalArgumentException {
+        if(name == null)
+            throw new IllegalArgumentException("The name of the train can't be null.");
+
+        TrainLinkedList train = new TrainLinkedList();
+        if(trains.putIfAbsent(name, train) != null)
+            throw new IllegalArgumentException("Invalid. Train " + name + " already exists.\n");
+
+        return train;
+    }
+
+    /**
+     * Returns a train of the yard.
+     *
+     * @param name
+     * 		Name of the train.
+     *
+     * @return
+     * 		The train with the given name.
+     *
+     * @throws IllegalArgumentException
+     * 		when no train of the yard has the name.
+     */
+    public TrainLinkedList get(String name) throws IllegalArgumentException {
+        TrainLinkedList train = (name == null) ? null : trains.get(name);
+        if(train == null)
+            throw new IllegalArgumentException("Invalid. No train named " + name + " in the yard.\n");
+
+        return train;
+    }
+
+    /**
+     * Removes a train from the yard.
+     *
+     * @param name
+     * 		Name of the train.
+     *
+     * @return
+     * 		The removed train.
+     *
+     * @throws IllegalArgumentException
+     * 		when no train of the yard has the name.
+     */
+    public TrainLinkedList remove(String name) throws IllegalArgumentException {
+        TrainLinkedList train = (name == null) ? null : trains.remove(name);
+        if(train == null)
+            throw new IllegalArgumentException("Invalid. No train named " + name + " in the yard.\n");
+
+        return train;
+    }
+
+    /**
+     * Returns the names of the trains of the yard.
+     *
+     * @return
+     * 		Read-only view of the names, reflecting later changes of the yard.
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(trains.keySet());
+    }
+
+    /**
+     * Returns the number of trains in the yard.
+     *
+     * @return
+     * 		Number of trains.
+     */
+    public int size() {
+        return trains.size();
+    }
+
+    /**
+     * Moves the car referenced by the cursor of a train after the cursor of another train.
+     *
+     * @param from
+     * 		Name of the train giving the car.
+     *
+     * @param to
+     * 		Name of the train receiving the car.
+     *
+     * @throws IllegalArgumentException
+     * 		when a train doesn't exist, or both names are the same.
+     *
+     * @throws EmptyListException
+     * 		when the train giving the car is empty.
+     */
+    public void moveCar(String from, String to) throws IllegalArgumentException, EmptyListException {
+        moveCars(from, to, 1);
+    }
+
+    /**
+     * Moves a run of cars, starting with the car referenced by the cursor of a train, after the
+     * cursor of another train. The cursor of the receiving train then references the last car
+     * moved, and the cursor of the giving train the car after the run, or the car before it if
+     * there is none after it. The totals of both trains are updated by the cars moved.
+     * <p>
+     * Post conditions:
+     * 		The order of the cars moved, and of the cars left on each train, is preserved.
+     *
+     * @param from
+     * 		Name of the train giving the cars.
+     *
+     * @param to
+     * 		Name of the train receiving the cars.
+     *
+     * @param count
+     * 		Number of cars moved.
+     *
+     * @throws IllegalArgumentException
+     * 		when a train doesn't exist, both names are the same, or there are fewer than count cars
+     * 		from the cursor to the tail of the giving train.
+     *
+     * @throws EmptyListException
+     * 		when the train giving the cars is empty.
+     */
+    public void moveCars(String from, String to, int count) throws IllegalArgumentException, EmptyListException {
+        TrainLinkedList source = get(from), target = get(to);
+        if(source == target)
+            throw new IllegalArgumentException("Invalid. Cars can't be moved within the same train.\n");
+
+        boolean sourceFirst = from.compareTo(to) < 0;
+        synchronized(sourceFirst ? source : target) {
+            synchronized(sourceFirst ? target : source) {
+                if(source.isEmpty())
+                    throw new EmptyListException("Invalid: No train exist.\n");
+
+                target.pasteAfterCursor(source.cut(source.getCursorNode(), count));
+            }
+        }
+    }
+}